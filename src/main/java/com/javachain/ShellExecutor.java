@@ -1,26 +1,135 @@
 package com.javachain;
 
+import com.javachain.dto.MiningResult;
+import com.javachain.dto.OutgoingTransaction;
+import com.javachain.dto.Block;
+import com.javachain.dto.Transaction;
+import com.javachain.dto.Wallet;
+import com.javachain.service.ContinuousMiningService;
 import com.javachain.service.MiningService;
+import com.javachain.service.TransactionService;
+import com.javachain.service.WalletService;
+import com.javachain.util.EncodingUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
+import java.math.BigDecimal;
+import java.security.NoSuchAlgorithmException;
+import java.security.SignatureException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 @ShellComponent
 public class ShellExecutor {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShellExecutor.class);
+
     private final MiningService service;
 
+    private final ContinuousMiningService continuousMiningService;
+
+    private final WalletService walletService;
+
+    private final TransactionService transactionService;
+
+    private final EncodingUtility encodingUtility;
+
+    /**
+     * The wallets of the shell session by signer, so block rewards and payments can be spent later.
+     */
+    private final Map<String, Wallet> wallets = new HashMap<>();
+
     @Autowired
-    public ShellExecutor(MiningService service) {
+    public ShellExecutor(MiningService service, ContinuousMiningService continuousMiningService,
+                         WalletService walletService, TransactionService transactionService,
+                         EncodingUtility encodingUtility) {
         this.service = service;
+        this.continuousMiningService = continuousMiningService;
+        this.walletService = walletService;
+        this.transactionService = transactionService;
+        this.encodingUtility = encodingUtility;
     }
 
     @ShellMethod("Work in progress")
     public String miner(
             @ShellOption String data,
-            @ShellOption int difficulty) {
+            @ShellOption int difficulty,
+            @ShellOption(defaultValue = "0", help = "Number of mining threads (0 = configured default)") int threads) {
         // invoke service
-        return service.mineNonce(data, difficulty);
+        MiningResult result = threads > 0 ? service.proofOfWork(data, difficulty, threads)
+                : service.proofOfWork(data, difficulty);
+        LOGGER.info("Found digest {} after {} attempts in {}", result.getDigest(), result.getAttempts(), result.getElapsed());
+        return String.valueOf(result.getNonce());
+    }
+
+    @ShellMethod("Start mining blocks in the background")
+    public String miningStart(
+            @ShellOption(defaultValue = "miner", help = "Signer of the wallet the block rewards go to") String signer)
+            throws NoSuchAlgorithmException {
+        if (continuousMiningService.isRunning()) {
+            return "Miner is already running";
+        }
+        Wallet wallet = wallet(signer);
+        continuousMiningService.start(wallet);
+        return "Miner started, block rewards go to " + signer + " ("
+                + encodingUtility.bytesToHex(wallet.address().getEncoded()) + ")";
+    }
+
+    @ShellMethod("Send tokens between wallets of the session, the background miner puts the transaction into a block")
+    public String miningSend(
+            @ShellOption(help = "Signer of the sending wallet") String from,
+            @ShellOption(help = "Signer of the receiving wallet, created if unknown") String to,
+            @ShellOption BigDecimal amount) throws NoSuchAlgorithmException, SignatureException {
+        Wallet sender = wallets.get(from);
+        if (sender == null) {
+            return "Unknown wallet " + from;
+        }
+        Block tip = continuousMiningService.getTip();
+        if (tip != null && tip != sender.getBlockchain()) {
+            sender = walletService.syncBlockchain(sender, tip);
+        }
+        // the amount goes into the output, the session wallets (the miner's too) are shared with the miner thread
+        OutgoingTransaction payment = new OutgoingTransaction(wallet(to).address(), amount);
+        Transaction transaction;
+        try {
+            transaction = transactionService.send(sender, false, Collections.singletonList(payment));
+        } catch (IllegalStateException e) {
+            return e.getMessage();
+        }
+        continuousMiningService.submitTransaction(transaction);
+        return "Transaction " + transaction.getId() + " submitted";
+    }
+
+    @ShellMethod("Stop the background miner")
+    public String miningStop() {
+        continuousMiningService.stop();
+        return "Miner stopped";
+    }
+
+    @ShellMethod("Show the state of the background miner")
+    public String miningStatus() {
+        Block tip = continuousMiningService.getTip();
+        return String.format("running=%s, height=%s, blocksMined=%d, cancelledSearches=%d, pendingTransactions=%d, "
+                        + "hashrate=%.0f H/s",
+                continuousMiningService.isRunning(), tip == null ? "-" : String.valueOf(tip.getHeight()),
+                continuousMiningService.getBlocksMined(), continuousMiningService.getCancelledSearches(),
+                continuousMiningService.getPendingTransactions(), service.getLastHashrate());
+    }
+
+    /**
+     * The wallet of the signer, a new one the first time.
+     */
+    private Wallet wallet(String signer) throws NoSuchAlgorithmException {
+        Wallet wallet = wallets.get(signer);
+        if (wallet == null) {
+            wallet = walletService.generateNewWallet(signer);
+            wallets.put(signer, wallet);
+        }
+        return wallet;
     }
 }
@@ -0,0 +1,56 @@
+package com.javachain.actuator;
+
+import com.javachain.dto.Block;
+import com.javachain.service.ContinuousMiningService;
+import com.javachain.service.MiningService;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code MiningEndpoint} is the actuator endpoint {@code mining}, a summary of the mining meters
+ * of {@link MiningService} and the state of the background miner.
+ * The single meters are also available through the {@code metrics} endpoint ({@code javachain.mining.*}).
+ */
+@Component
+@Endpoint(id = "mining")
+public class MiningEndpoint {
+
+    private final MiningService miningService;
+
+    private final ContinuousMiningService continuousMiningService;
+
+    @Autowired
+    public MiningEndpoint(MiningService miningService, ContinuousMiningService continuousMiningService) {
+        this.miningService = miningService;
+        this.continuousMiningService = continuousMiningService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> mining() {
+        Timer miningTime = miningService.getMiningTime();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("threads", miningService.getThreads());
+        statistics.put("searches", miningTime.count());
+        statistics.put("cancelledSearches", miningService.getCancelledSearches());
+        statistics.put("hashes", miningService.getHashes());
+        statistics.put("hashrate", miningService.getLastHashrate());
+        statistics.put("difficulty", miningService.getDifficulty());
+        statistics.put("meanAttempts", miningService.getAttemptsPerSearch().mean());
+        statistics.put("meanTimeMillis", miningTime.mean(TimeUnit.MILLISECONDS));
+        statistics.put("maxTimeMillis", miningTime.max(TimeUnit.MILLISECONDS));
+
+        Block tip = continuousMiningService.getTip();
+        statistics.put("minerRunning", continuousMiningService.isRunning());
+        statistics.put("height", tip == null ? null : tip.getHeight());
+        statistics.put("blocksMined", continuousMiningService.getBlocksMined());
+        statistics.put("pendingTransactions", continuousMiningService.getPendingTransactions());
+        return statistics;
+    }
+}
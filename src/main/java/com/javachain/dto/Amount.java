@@ -0,0 +1,75 @@
+package com.javachain.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The {@code Amount} class does the arithmetic of token amounts held as a {@code long} number of the smallest unit,
+ * {@value #SCALE} decimal places of a token.
+ * <p>
+ * Sums and differences are exact and overflow throws an {@link ArithmeticException}, amounts never wrap around.
+ * Working on primitives, balances and fees are computed without allocating; {@link BigDecimal} is only used where
+ * amounts enter or leave (wallets, the shell, tests), through {@link #of(BigDecimal)} and {@link #toDecimal(long)}.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   long units = Amount.add(Amount.of(new BigDecimal("1.5")), Amount.coins(25));
+ *   BigDecimal amount = Amount.toDecimal(units); // 26.5
+ *  </pre></blockquote><p>
+ */
+public final class Amount {
+
+    public static final int SCALE = 8;
+
+    public static final long UNITS_PER_COIN = 100_000_000L;
+
+    private Amount() {
+    }
+
+    /**
+     * @param amount BigDecimal in tokens
+     * @return long the amount in units
+     * @throws ArithmeticException if the amount has more than {@value #SCALE} decimal places or doesn't fit a long
+     */
+    public static long of(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * @param coins long whole tokens
+     * @return long the amount in units
+     * @throws ArithmeticException on overflow
+     */
+    public static long coins(long coins) {
+        return Math.multiplyExact(coins, UNITS_PER_COIN);
+    }
+
+    /**
+     * @param units long
+     * @return BigDecimal the amount in tokens, without trailing zeros (25 tokens is {@code 25}, not {@code 25.00000000})
+     */
+    public static BigDecimal toDecimal(long units) {
+        BigDecimal amount = BigDecimal.valueOf(units, SCALE).stripTrailingZeros();
+        return amount.scale() < 0 ? amount.setScale(0) : amount;
+    }
+
+    /**
+     * @throws ArithmeticException on overflow
+     */
+    public static long add(long units, long other) {
+        return Math.addExact(units, other);
+    }
+
+    /**
+     * @throws ArithmeticException on overflow
+     */
+    public static long subtract(long units, long other) {
+        return Math.subtractExact(units, other);
+    }
+
+    /**
+     * @throws ArithmeticException on overflow
+     */
+    public static long negate(long units) {
+        return Math.negateExact(units);
+    }
+}
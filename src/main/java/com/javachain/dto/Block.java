@@ -1,5 +1,7 @@
 package com.javachain.dto;
 
+import com.javachain.util.MerkleTree;
+
 import java.io.Serializable;
 import java.security.PublicKey;
 import java.time.Instant;
@@ -15,7 +17,11 @@ import java.util.Objects;
  * <ul>
  *     <li>list of transactions,</li>
  *     <li>the nonce, is the number that block chain miners are trying to solve,</li>
- *     <li>the hash (fixed length presentation of the block/data),</li>
+ *     <li>the hash (fixed length presentation of the block/data), the hash of its {@link BlockHeader},
+ *     set once when the block is sealed after mining and used as its identity,</li>
+ *     <li>the Merkle root of the transactions,</li>
+ *     <li>the target (in compact form) the hash has to be below,</li>
+ *     <li>the height (number of blocks before it),</li>
  *     <li>address of a miner,</li>
  *     <li>creation date.</li>
  * </ul>
@@ -36,19 +42,28 @@ import java.util.Objects;
 public class Block implements Serializable {
 
     private String nonce;
-    private String hash;
+    private Hash256 hash;
+    private String merkleRoot;
+    private int target;
+    private int height;
     private List<Transaction> transactionList;
     private Block previousBlock;
     private PublicKey minersAddress;
     private final Instant dateCreated;
     private boolean skipVerification;
     private boolean includeHash;
+    private transient MerkleTree merkleTree;
 
     public Block(PublicKey minersAddress, List<Transaction> transactions, Block previousBlock) {
+        this(minersAddress, transactions, previousBlock, Instant.now());
+    }
+
+    public Block(PublicKey minersAddress, List<Transaction> transactions, Block previousBlock, Instant dateCreated) {
         this.minersAddress = minersAddress;
         this.transactionList = transactions;
         this.previousBlock = previousBlock;
-        this.dateCreated = Instant.now();
+        this.height = previousBlock == null ? 0 : previousBlock.getHeight() + 1;
+        this.dateCreated = dateCreated;
         includeHash = false;
     }
 
@@ -57,8 +72,12 @@ public class Block implements Serializable {
         return "Block{" +
                 (includeHash ? "nonce='" + nonce + '\'' +
                         ", hash='" + hash + '\'' : "") +
+                ", merkleRoot='" + merkleRoot + '\'' +
+                ", target=" + Integer.toHexString(target) +
+                ", height=" + height +
+                ", dateCreated=" + dateCreated +
                 ", transactionList=" + transactionList +
-                ", ancestor=" + previousBlock +
+                ", previousHash=" + (previousBlock == null ? null : previousBlock.getHash()) +
                 ", minerAddress=" + minersAddress +
                 ", skipVerification=" + skipVerification +
                 '}';
@@ -69,8 +88,12 @@ public class Block implements Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Block block = (Block) o;
+        if (hash != null && block.hash != null) {
+            return hash.equals(block.hash);
+        }
         return skipVerification == block.skipVerification &&
                 includeHash == block.includeHash &&
+                target == block.target &&
                 Objects.equals(nonce, block.nonce) &&
                 Objects.equals(dateCreated, block.dateCreated) &&
                 Objects.equals(hash, block.hash) &&
@@ -80,7 +103,10 @@ public class Block implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(nonce, hash, previousBlock, minersAddress, skipVerification, includeHash, dateCreated);
+        if (hash != null) {
+            return hash.hashCode();
+        }
+        return Objects.hash(nonce, target, previousBlock, minersAddress, skipVerification, includeHash, dateCreated);
     }
 
     public List<Transaction> getTransactionList() {
@@ -98,6 +124,26 @@ public class Block implements Serializable {
 
     public void setPreviousBlock(Block previousBlock) {
         this.previousBlock = previousBlock;
+        this.height = previousBlock == null ? 0 : previousBlock.getHeight() + 1;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return int the proof-of-work target in compact form (see {@link com.javachain.util.Target})
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    public void setTarget(int target) {
+        this.target = target;
+    }
+
+    public Instant getDateCreated() {
+        return dateCreated;
     }
 
     public String getNonce() {
@@ -108,14 +154,59 @@ public class Block implements Serializable {
         this.nonce = nonce;
     }
 
+    /**
+     * @return String hex encoded Merkle root of the transactions, set when the block is mined
+     */
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    public void setMerkleRoot(String merkleRoot) {
+        this.merkleRoot = merkleRoot;
+    }
+
+    /**
+     * @return MerkleTree the tree over the transactions, cached when the block was mined or verified (may be null)
+     */
+    public MerkleTree getMerkleTree() {
+        return merkleTree;
+    }
+
+    public void setMerkleTree(MerkleTree merkleTree) {
+        this.merkleTree = merkleTree;
+    }
+
+    /**
+     * @return String hex encoded hash of the block, null until the block is mined
+     */
     public String getHash() {
-        return hash;
+        return hash == null ? null : hash.toHex();
     }
 
     public void setHash(String hash) {
+        this.hash = hash == null ? null : Hash256.fromHex(hash);
+    }
+
+    /**
+     * @return Hash256 the hash of the block, null until the block is sealed
+     */
+    public Hash256 getId() {
+        return hash;
+    }
+
+    /**
+     * Sets the hash of the mined block, from then on it is compared and hashed by it.
+     *
+     * @param hash Hash256
+     */
+    public void seal(Hash256 hash) {
         this.hash = hash;
     }
 
+    public boolean isSealed() {
+        return hash != null;
+    }
+
     public PublicKey getMinersAddress() {
         return minersAddress;
     }
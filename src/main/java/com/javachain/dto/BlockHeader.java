@@ -0,0 +1,147 @@
+package com.javachain.dto;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The {@code BlockHeader} class is the part of a block that is hashed (mined).
+ * It commits to the previous block through its hash and to the transactions through their Merkle root,
+ * so its size, and the cost of hashing it, does not depend on the length of the chain or the number of transactions.
+ * <p>
+ * The canonical encoding is {@value #LENGTH} bytes, all numbers big-endian:
+ * <pre>
+ *   version        4 bytes
+ *   previous hash 32 bytes (zeros for the genesis block)
+ *   merkle root   32 bytes
+ *   timestamp      8 bytes (milliseconds since the epoch)
+ *   target         4 bytes (compact form)
+ *   nonce          8 bytes
+ * </pre>
+ * The nonce is last, so mining can hash the first {@value #NONCE_OFFSET} bytes followed by each nonce.
+ */
+public final class BlockHeader implements Serializable {
+
+    public static final int VERSION = 1;
+
+    public static final int HASH_LENGTH = 32;
+
+    public static final int NONCE_OFFSET = 4 + HASH_LENGTH + HASH_LENGTH + 8 + 4;
+
+    public static final int LENGTH = NONCE_OFFSET + 8;
+
+    private final int version;
+    private final byte[] previousHash;
+    private final byte[] merkleRoot;
+    private final long timestamp;
+    private final int target;
+    private final long nonce;
+
+    public BlockHeader(int version, byte[] previousHash, byte[] merkleRoot, long timestamp, int target, long nonce) {
+        if (previousHash.length != HASH_LENGTH || merkleRoot.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("Hashes in the header have to be " + HASH_LENGTH + " bytes long");
+        }
+        this.version = version;
+        this.previousHash = previousHash.clone();
+        this.merkleRoot = merkleRoot.clone();
+        this.timestamp = timestamp;
+        this.target = target;
+        this.nonce = nonce;
+    }
+
+    public BlockHeader withNonce(long nonce) {
+        return new BlockHeader(version, previousHash, merkleRoot, timestamp, target, nonce);
+    }
+
+    /**
+     * @return byte[] the canonical encoding, {@value #LENGTH} bytes
+     */
+    public byte[] encode() {
+        return ByteBuffer.allocate(LENGTH)
+                .put(encodeWithoutNonce())
+                .putLong(nonce)
+                .array();
+    }
+
+    /**
+     * @return byte[] the first {@value #NONCE_OFFSET} bytes of the canonical encoding (everything but the nonce)
+     */
+    public byte[] encodeWithoutNonce() {
+        return ByteBuffer.allocate(NONCE_OFFSET)
+                .putInt(version)
+                .put(previousHash)
+                .put(merkleRoot)
+                .putLong(timestamp)
+                .putInt(target)
+                .array();
+    }
+
+    public static BlockHeader decode(byte[] encoded) {
+        if (encoded.length != LENGTH) {
+            throw new IllegalArgumentException("Block header has to be " + LENGTH + " bytes long");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        int version = buffer.getInt();
+        byte[] previousHash = new byte[HASH_LENGTH];
+        buffer.get(previousHash);
+        byte[] merkleRoot = new byte[HASH_LENGTH];
+        buffer.get(merkleRoot);
+        return new BlockHeader(version, previousHash, merkleRoot, buffer.getLong(), buffer.getInt(), buffer.getLong());
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public byte[] getPreviousHash() {
+        return previousHash.clone();
+    }
+
+    public byte[] getMerkleRoot() {
+        return merkleRoot.clone();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockHeader{" +
+                "version=" + version +
+                ", timestamp=" + timestamp +
+                ", target=" + Integer.toHexString(target) +
+                ", nonce=" + nonce +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BlockHeader that = (BlockHeader) o;
+        return version == that.version &&
+                timestamp == that.timestamp &&
+                target == that.target &&
+                nonce == that.nonce &&
+                Arrays.equals(previousHash, that.previousHash) &&
+                Arrays.equals(merkleRoot, that.merkleRoot);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(version, timestamp, target, nonce);
+        result = 31 * result + Arrays.hashCode(previousHash);
+        result = 31 * result + Arrays.hashCode(merkleRoot);
+        return result;
+    }
+}
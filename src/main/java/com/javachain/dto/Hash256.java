@@ -0,0 +1,80 @@
+package com.javachain.dto;
+
+import com.javachain.util.EncodingUtility;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The {@code Hash256} class is an immutable 32-byte hash, used as the id of sealed transactions and blocks.
+ * <p>
+ * Comparing two ids is a comparison of 32 bytes and the hash code covers all of them (block hashes start with
+ * the zeros the proof-of-work asks for, so a part of the bytes is not enough), ids are cheap keys for sets and maps.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   Hash256 id = Hash256.fromHex(block.getHash());
+ *  </pre></blockquote><p>
+ */
+public final class Hash256 implements Serializable {
+
+    public static final int LENGTH = 32;
+
+    private static final EncodingUtility HEX = new EncodingUtility();
+
+    private final byte[] bytes;
+
+    private Hash256(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param bytes byte[] {@value #LENGTH} bytes, copied
+     * @return Hash256
+     */
+    public static Hash256 of(byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Hash has to be " + LENGTH + " bytes long, got " + bytes.length);
+        }
+        return new Hash256(bytes.clone());
+    }
+
+    /**
+     * @param hex String {@value #LENGTH} bytes, hex encoded
+     * @return Hash256
+     */
+    public static Hash256 fromHex(String hex) {
+        if (hex.length() != 2 * LENGTH) {
+            throw new IllegalArgumentException("Hash has to be " + 2 * LENGTH + " hex characters long: " + hex);
+        }
+        return new Hash256(HEX.hexToBytes(hex));
+    }
+
+    /**
+     * @return byte[] a copy of the hash
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    public String toHex() {
+        return HEX.bytesToHex(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(bytes, ((Hash256) o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+}
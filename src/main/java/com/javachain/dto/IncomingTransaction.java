@@ -5,46 +5,40 @@ import java.util.Objects;
 
 /**
  * The {@code IncomingTransaction} class represents transaction coming into wallet.
- * It contains the transaction itself (for verification reasons)
- * and outPutIndex (position in a list of all incoming / outgoing transactions)
+ * It contains the {@link OutPoint} it spends, the id of the parent transaction
+ * and outPutIndex (position in the list of the parent's outgoing transactions).
+ * <p>
+ * The parent transaction is not referenced, it is resolved through the
+ * {@link com.javachain.index.TransactionIndex} when needed, so an input does not keep the history behind it in memory.
  */
 public class IncomingTransaction implements Serializable {
 
-    private Transaction transaction; // TODO here for validation, consider refactoring
-    private final int outPutIndex;
+    private final OutPoint outPoint;
 
-    public IncomingTransaction(Transaction transaction, int outPutIndex) {
-        this.transaction = transaction;
-        this.outPutIndex = outPutIndex;
+    public IncomingTransaction(OutPoint outPoint) {
+        this.outPoint = Objects.requireNonNull(outPoint, "outPoint");
     }
 
-    public Transaction getTransaction() {
-        return transaction;
+    public IncomingTransaction(Hash256 txid, int outPutIndex) {
+        this(new OutPoint(txid, outPutIndex));
     }
 
-    public void setTransaction(Transaction transaction) {
-        this.transaction = transaction;
+    public OutPoint getOutPoint() {
+        return outPoint;
     }
 
-    public OutgoingTransaction getRecipient() {
-        if (!transaction.getOutgoingTransactions().isEmpty()) {
-            for (OutgoingTransaction otr : getTransaction().getOutgoingTransactions()) {
-                if (otr.getRecipientAddress().equals(transaction.getWallet().address()))//TODO MAKE SURE THAT ALL OUT TRANSACTIONS GET MERGED INTO ONE OUT TRANSACTION PER USER
-                    return otr;
-            }
-        }
-        return null;
+    public Hash256 getTxid() {
+        return outPoint.getTxid();
     }
 
-    public OutgoingTransaction parentOutPut() {
-        return this.transaction.getOutgoingTransactions().get(this.outPutIndex);
+    public int getOutPutIndex() {
+        return outPoint.getIndex();
     }
 
     @Override
     public String toString() {
         return "InTransaction{" +
-                "transaction=" + transaction +
-                ", outPutIndex=" + outPutIndex +
+                "outPoint=" + outPoint +
                 '}';
     }
 
@@ -53,12 +47,11 @@ public class IncomingTransaction implements Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         IncomingTransaction that = (IncomingTransaction) o;
-        return outPutIndex == that.outPutIndex &&
-                Objects.equals(transaction, that.transaction);
+        return outPoint.equals(that.outPoint);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(transaction, outPutIndex);
+        return outPoint.hashCode();
     }
 }
@@ -0,0 +1,50 @@
+package com.javachain.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code MerkleProof} class shows that a transaction is part of a block without the other transactions.
+ * <p>
+ * It contains:
+ * <ul>
+ *     <li>the index of the transaction in the block,</li>
+ *     <li>the sibling hashes on the path from the transaction up to the Merkle root (log2(n) hashes).</li>
+ * </ul>
+ * It is checked against the Merkle root in the block header, see {@link com.javachain.util.MerkleTree#verify}.
+ */
+public final class MerkleProof implements Serializable {
+
+    private final int index;
+    private final List<byte[]> siblings;
+
+    public MerkleProof(int index, List<byte[]> siblings) {
+        this.index = index;
+        List<byte[]> copy = new ArrayList<>(siblings.size());
+        for (byte[] sibling : siblings) {
+            copy.add(sibling.clone());
+        }
+        this.siblings = Collections.unmodifiableList(copy);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return List the sibling hashes from the leaf level up, do not modify the arrays
+     */
+    public List<byte[]> getSiblings() {
+        return siblings;
+    }
+
+    @Override
+    public String toString() {
+        return "MerkleProof{" +
+                "index=" + index +
+                ", siblings=" + siblings.size() +
+                '}';
+    }
+}
@@ -0,0 +1,73 @@
+package com.javachain.dto;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The {@code MiningResult} class represents the outcome of one proof-of-work search.
+ * <p>
+ * It contains:
+ * <ul>
+ *     <li>the nonce that solves the puzzle,</li>
+ *     <li>the digest (hash) produced by that nonce,</li>
+ *     <li>the number of hashes computed to find it (by all mining threads),</li>
+ *     <li>the time the search took.</li>
+ * </ul>
+ */
+public class MiningResult implements Serializable {
+
+    private final long nonce;
+    private final String digest;
+    private final long attempts;
+    private final Duration elapsed;
+
+    public MiningResult(long nonce, String digest, long attempts, Duration elapsed) {
+        this.nonce = nonce;
+        this.digest = digest;
+        this.attempts = attempts;
+        this.elapsed = elapsed;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "MiningResult{" +
+                "nonce=" + nonce +
+                ", digest='" + digest + '\'' +
+                ", attempts=" + attempts +
+                ", elapsed=" + elapsed +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MiningResult that = (MiningResult) o;
+        return nonce == that.nonce &&
+                attempts == that.attempts &&
+                Objects.equals(digest, that.digest) &&
+                Objects.equals(elapsed, that.elapsed);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nonce, digest, attempts, elapsed);
+    }
+}
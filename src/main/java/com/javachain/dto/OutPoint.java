@@ -0,0 +1,46 @@
+package com.javachain.dto;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The {@code OutPoint} class points to one output of a transaction, by the transaction id and the index of the output.
+ * It is what an {@link IncomingTransaction} spends, the output itself is looked up in the
+ * {@link com.javachain.index.TransactionIndex}.
+ */
+public final class OutPoint implements Serializable {
+
+    private final Hash256 txid;
+    private final int index;
+
+    public OutPoint(Hash256 txid, int index) {
+        this.txid = Objects.requireNonNull(txid, "txid");
+        this.index = index;
+    }
+
+    public Hash256 getTxid() {
+        return txid;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return txid + ":" + index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OutPoint outPoint = (OutPoint) o;
+        return index == outPoint.index && txid.equals(outPoint.txid);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * txid.hashCode() + index;
+    }
+}
@@ -8,15 +8,21 @@ import java.util.Objects;
 /**
  * The {@code OutgoingTransaction} class represents transaction going from the wallet.
  * It contains recipient wallet address and amount.
+ * The amount is kept in units (see {@link Amount}), a missing amount is zero.
  */
 public class OutgoingTransaction implements Serializable {
 
     private PublicKey recipientAddress;
-    private BigDecimal amount;
+    private long amount;
 
     public OutgoingTransaction(PublicKey recipientAddress, BigDecimal amount) {
         this.recipientAddress = recipientAddress;
-        this.amount = amount;
+        setAmount(amount);
+    }
+
+    public OutgoingTransaction(PublicKey recipientAddress, long amountUnits) {
+        this.recipientAddress = recipientAddress;
+        this.amount = amountUnits;
     }
 
     public PublicKey getRecipientAddress() {
@@ -28,18 +34,22 @@ public class OutgoingTransaction implements Serializable {
     }
 
     public BigDecimal getAmount() {
-        return amount;
+        return Amount.toDecimal(amount);
     }
 
     public void setAmount(BigDecimal amount) {
-        this.amount = amount;
+        this.amount = amount == null ? 0 : Amount.of(amount);
+    }
+
+    public long getAmountUnits() {
+        return amount;
     }
 
     @Override
     public String toString() {
         return "OutTransaction{" +
                 "recipientAddress=" + recipientAddress +
-                ", amount=" + amount +
+                ", amount=" + getAmount() +
                 '}';
     }
 
@@ -49,7 +59,7 @@ public class OutgoingTransaction implements Serializable {
         if (o == null || getClass() != o.getClass()) return false;
         OutgoingTransaction that = (OutgoingTransaction) o;
         return Objects.equals(recipientAddress, that.recipientAddress) &&
-                Objects.equals(amount, that.amount);
+                amount == that.amount;
     }
 
     @Override
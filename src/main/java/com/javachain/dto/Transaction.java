@@ -19,6 +19,8 @@ import java.util.Objects;
  *     <li>the amount we are sending (temporary storage),</li>
  *     <li>wallet related fields - like keys, sender address ...</li>
  * </ul>
+ * Once signed the transaction is sealed with its id (see {@link com.javachain.util.TransactionEncoder#txid}),
+ * from then on it is compared and hashed by the id instead of by its content.
  */
 public class Transaction implements Serializable {
 
@@ -28,12 +30,13 @@ public class Transaction implements Serializable {
 
     private List<IncomingTransaction> incomingTransactions;
     private List<OutgoingTransaction> outgoingTransactions;
-    private BigDecimal fee;
+    private long fee;
     private String signature; //TODO change this into Signature object
     private Wallet wallet; //TODO remove wallet object from transaction
     private final Instant dateCreated;
     private boolean initial = false;
     private boolean includeSignature = true;
+    private Hash256 id;
 
     public List<IncomingTransaction> getIncomingTransactions() {
         return incomingTransactions;
@@ -52,10 +55,18 @@ public class Transaction implements Serializable {
     }
 
     public BigDecimal getFee() {
-        return fee;
+        return Amount.toDecimal(fee);
     }
 
     public void setFee(BigDecimal fee) {
+        this.fee = fee == null ? 0 : Amount.of(fee);
+    }
+
+    public long getFeeUnits() {
+        return fee;
+    }
+
+    public void setFeeUnits(long fee) {
         this.fee = fee;
     }
 
@@ -71,6 +82,10 @@ public class Transaction implements Serializable {
         return wallet;
     }
 
+    public Instant getDateCreated() {
+        return dateCreated;
+    }
+
     public boolean isIncludeSignature() {
         return includeSignature;
     }
@@ -97,9 +112,12 @@ public class Transaction implements Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Transaction that = (Transaction) o;
+        if (id != null && that.id != null) {
+            return id.equals(that.id);
+        }
         return Objects.equals(incomingTransactions, that.incomingTransactions) &&
                 Objects.equals(outgoingTransactions, that.outgoingTransactions) &&
-                Objects.equals(fee, that.fee) &&
+                fee == that.fee &&
                 Objects.equals(dateCreated, that.dateCreated) &&
                 Objects.equals(signature, that.signature) &&
                 Objects.equals(wallet, that.wallet);
@@ -107,6 +125,9 @@ public class Transaction implements Serializable {
 
     @Override
     public int hashCode() {
+        if (id != null) {
+            return id.hashCode();
+        }
         return Objects.hash(incomingTransactions, outgoingTransactions, fee, signature, wallet, dateCreated);
     }
 
@@ -121,4 +142,28 @@ public class Transaction implements Serializable {
     public String getSignature() {
         return signature;
     }
+
+    /**
+     * @return Hash256 the transaction id, null until the transaction is sealed
+     */
+    public Hash256 getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of the signed transaction, it is computed only once.
+     *
+     * @param id Hash256
+     * @throws IllegalStateException if the transaction is already sealed with another id
+     */
+    public void seal(Hash256 id) {
+        if (this.id != null && !this.id.equals(id)) {
+            throw new IllegalStateException("Transaction is already sealed with id " + this.id);
+        }
+        this.id = id;
+    }
+
+    public boolean isSealed() {
+        return id != null;
+    }
 }
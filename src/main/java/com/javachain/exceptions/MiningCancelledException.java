@@ -0,0 +1,11 @@
+package com.javachain.exceptions;
+
+/**
+ * Thrown when a nonce search is abandoned before it found a solution,
+ * e.g. because the block it was mining on top of is no longer the chain tip.
+ */
+public class MiningCancelledException extends RuntimeException {
+    public MiningCancelledException(String message) {
+        super(message);
+    }
+}
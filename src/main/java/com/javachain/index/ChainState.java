@@ -0,0 +1,338 @@
+package com.javachain.index;
+
+import com.javachain.dto.Amount;
+import com.javachain.dto.Block;
+import com.javachain.dto.IncomingTransaction;
+import com.javachain.dto.OutPoint;
+import com.javachain.dto.OutgoingTransaction;
+import com.javachain.dto.Transaction;
+import com.javachain.dto.Wallet;
+import org.springframework.stereotype.Component;
+
+import java.security.PublicKey;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code ChainState} class keeps the unspent outputs (UTXO set) of a chain, keyed by {@link OutPoint}.
+ * <p>
+ * Blocks are connected on top of the tip one at a time: every input has to spend an output that is unspent
+ * at that point (created earlier in the chain or earlier in the same block, and not spent since), so a double spend
+ * or an input pointing to an output of another chain fails the block. Spending and adding an output are
+ * constant time. The unspent outputs are also kept by recipient address, so a wallet's spendable outputs are found
+ * without scanning the chain ({@link #getUnspent(PublicKey)}). What a block spent is kept, so blocks can be disconnected again when the node switches to
+ * another chain ({@link #moveTo(Block)}).
+ * <p>
+ * The balance of every address on the chain is kept along, updated when a block is connected and reverted when
+ * it is disconnected: received outputs are added, the outputs of the address's own (non coinbase) transactions
+ * are subtracted, the same as a scan of the whole chain. Balances are {@link Amount} units, looking one up
+ * doesn't allocate; a block whose amounts would overflow them can't be connected.
+ * <p>
+ * The bean holds the state of the chain the node validated or computed balances of last. The methods are synchronized,
+ * callers that need several steps to be atomic synchronize on the instance.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   synchronized (chainState) {
+ *       if (chainState.moveTo(block.getPreviousBlock()) &amp;&amp; chainState.connect(block)) ...
+ *   }
+ *  </pre></blockquote><p>
+ */
+@Component
+public class ChainState {
+
+    private final Map<OutPoint, OutgoingTransaction> unspent = new HashMap<>();
+
+    private final Deque<BlockUndo> connected = new ArrayDeque<>();
+
+    private final Map<PublicKey, Map<OutPoint, OutgoingTransaction>> unspentByAddress = new HashMap<>();
+
+    private final Map<PublicKey, Balance> balances = new HashMap<>();
+
+    private final Set<Block> blocks = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private Block tip;
+
+    /**
+     * @return Block the last connected block, null if no block is connected
+     */
+    public synchronized Block getTip() {
+        return tip;
+    }
+
+    /**
+     * @param block Block
+     * @return boolean true if the block (this instance) is connected
+     */
+    public synchronized boolean contains(Block block) {
+        return blocks.contains(block);
+    }
+
+    /**
+     * @param outPoint OutPoint
+     * @return OutgoingTransaction the unspent output, null if it was spent or never created on this chain
+     */
+    public synchronized OutgoingTransaction getUnspent(OutPoint outPoint) {
+        return unspent.get(outPoint);
+    }
+
+    public synchronized boolean isUnspent(OutPoint outPoint) {
+        return unspent.containsKey(outPoint);
+    }
+
+    /**
+     * @param address PublicKey
+     * @return Map the unspent outputs received by the address, a copy
+     */
+    public synchronized Map<OutPoint, OutgoingTransaction> getUnspent(PublicKey address) {
+        Map<OutPoint, OutgoingTransaction> outputs = unspentByAddress.get(address);
+        return outputs == null ? new HashMap<>() : new HashMap<>(outputs);
+    }
+
+    /**
+     * @param address PublicKey
+     * @return long the balance in units of the address on the connected chain, zero if it never received anything
+     */
+    public synchronized long getBalance(PublicKey address) {
+        Balance balance = balances.get(address);
+        return balance == null ? 0 : balance.units;
+    }
+
+    /**
+     * @return Map the non-zero balances in units by address, a copy
+     */
+    public synchronized Map<PublicKey, Long> getBalances() {
+        Map<PublicKey, Long> copy = new HashMap<>();
+        balances.forEach((address, balance) -> copy.put(address, balance.units));
+        return copy;
+    }
+
+    /**
+     * @return int the number of unspent outputs
+     */
+    public synchronized int size() {
+        return unspent.size();
+    }
+
+    /**
+     * @return int the number of connected blocks
+     */
+    public synchronized int getHeight() {
+        return connected.size();
+    }
+
+    /**
+     * Spends the inputs and adds the outputs of the block's transactions, in order.
+     * Transactions have to be sealed.
+     *
+     * @param block Block on top of the tip
+     * @return boolean false if an input doesn't spend an unspent output, an output is already unspent (a transaction
+     * id repeated) or a balance would overflow, the state is not changed then
+     * @throws IllegalArgumentException if the block is not on top of the tip
+     */
+    public synchronized boolean connect(Block block) {
+        if (block.getPreviousBlock() != tip) {
+            throw new IllegalArgumentException("Block " + block.getHash() + " is not on top of the tip");
+        }
+        BlockUndo undo = new BlockUndo(block);
+        try {
+            undo.balances = balanceChanges(block);
+            undo.balances.forEach((address, change) -> Amount.add(getBalance(address), change.units));
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        for (Transaction transaction : transactions(block)) {
+            if (!transaction.isSealed()) {
+                undo.revert(this);
+                throw new IllegalArgumentException("Transactions have to be sealed to be connected");
+            }
+            if (transaction.getIncomingTransactions() != null) {
+                for (IncomingTransaction input : transaction.getIncomingTransactions()) {
+                    OutPoint outPoint = input.getOutPoint();
+                    OutgoingTransaction output = removeUnspent(outPoint);
+                    if (output == null) {
+                        undo.revert(this);
+                        return false;
+                    }
+                    undo.spent.put(outPoint, output);
+                }
+            }
+            List<OutgoingTransaction> outputs = transaction.getOutgoingTransactions();
+            if (outputs != null) {
+                for (int i = 0; i < outputs.size(); i++) {
+                    OutPoint outPoint = new OutPoint(transaction.getId(), i);
+                    if (unspent.containsKey(outPoint)) {
+                        undo.revert(this);
+                        return false;
+                    }
+                    addUnspent(outPoint, outputs.get(i));
+                    undo.created.add(outPoint);
+                }
+            }
+        }
+        undo.balances.forEach((address, change) -> addToBalance(address, change.units));
+        connected.push(undo);
+        blocks.add(block);
+        tip = block;
+        return true;
+    }
+
+    /**
+     * Disconnects the tip: its outputs are removed, the outputs it spent are unspent again.
+     *
+     * @throws IllegalStateException if no block is connected
+     */
+    public synchronized void disconnect() {
+        BlockUndo undo = connected.poll();
+        if (undo == null) {
+            throw new IllegalStateException("No block is connected");
+        }
+        undo.revert(this);
+        undo.balances.forEach((address, change) -> addToBalance(address, Amount.negate(change.units)));
+        blocks.remove(undo.block);
+        tip = undo.block.getPreviousBlock();
+    }
+
+    /**
+     * Moves the state to the block: disconnects the blocks down to the last one the block's chain shares with
+     * the current one and connects the block's chain from there. A null block empties the state.
+     *
+     * @param block Block the new tip, its chain should be valid
+     * @return boolean false if a block can't be connected, the state is then left below it
+     */
+    public synchronized boolean moveTo(Block block) {
+        List<Block> path = new ArrayList<>();
+        Block fork = block;
+        while (fork != null && !blocks.contains(fork)) {
+            path.add(fork);
+            fork = fork.getPreviousBlock();
+        }
+        while (tip != fork) {
+            disconnect();
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            if (!connect(path.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        unspent.clear();
+        unspentByAddress.clear();
+        balances.clear();
+        connected.clear();
+        blocks.clear();
+        tip = null;
+    }
+
+    private void addUnspent(OutPoint outPoint, OutgoingTransaction output) {
+        unspent.put(outPoint, output);
+        if (output.getRecipientAddress() != null) {
+            unspentByAddress.computeIfAbsent(output.getRecipientAddress(), address -> new HashMap<>())
+                    .put(outPoint, output);
+        }
+    }
+
+    private OutgoingTransaction removeUnspent(OutPoint outPoint) {
+        OutgoingTransaction output = unspent.remove(outPoint);
+        if (output != null && output.getRecipientAddress() != null) {
+            Map<OutPoint, OutgoingTransaction> outputs = unspentByAddress.get(output.getRecipientAddress());
+            if (outputs != null) {
+                outputs.remove(outPoint);
+                if (outputs.isEmpty()) {
+                    unspentByAddress.remove(output.getRecipientAddress());
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * The balance changes of the block by address, kept to be reverted as they were applied.
+     */
+    private static Map<PublicKey, Balance> balanceChanges(Block block) {
+        Map<PublicKey, Balance> changes = new HashMap<>();
+        for (Transaction transaction : transactions(block)) {
+            List<OutgoingTransaction> outputs = transaction.getOutgoingTransactions();
+            if (outputs == null) {
+                continue;
+            }
+            Wallet sender = transaction.getWallet();
+            for (OutgoingTransaction output : outputs) {
+                if (output.getRecipientAddress() != null) {
+                    changes.computeIfAbsent(output.getRecipientAddress(), address -> new Balance())
+                            .add(output.getAmountUnits());
+                }
+                if (sender != null && !transaction.isInitial()) {
+                    changes.computeIfAbsent(sender.address(), address -> new Balance())
+                            .add(Amount.negate(output.getAmountUnits()));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Addresses without coins are dropped, so the balances don't keep every address ever seen.
+     */
+    private void addToBalance(PublicKey address, long units) {
+        Balance balance = balances.computeIfAbsent(address, key -> new Balance());
+        balance.add(units);
+        if (balance.units == 0) {
+            balances.remove(address);
+        }
+    }
+
+    private static List<Transaction> transactions(Block block) {
+        return block.getTransactionList() == null ? Collections.emptyList() : block.getTransactionList();
+    }
+
+    /**
+     * What connecting a block changed.
+     */
+    private static final class BlockUndo {
+
+        private final Block block;
+
+        private final Map<OutPoint, OutgoingTransaction> spent = new HashMap<>();
+
+        private final List<OutPoint> created = new ArrayList<>();
+
+        private Map<PublicKey, Balance> balances = Collections.emptyMap();
+
+        private BlockUndo(Block block) {
+            this.block = block;
+        }
+
+        /**
+         * Outputs created and spent within the block are put back first and then removed with the created ones.
+         */
+        private void revert(ChainState state) {
+            spent.forEach(state::addUnspent);
+            for (OutPoint outPoint : created) {
+                state.removeUnspent(outPoint);
+            }
+        }
+    }
+
+    /**
+     * A balance in units, updated in place.
+     */
+    private static final class Balance {
+
+        private long units;
+
+        private void add(long amount) {
+            units = Amount.add(units, amount);
+        }
+    }
+}
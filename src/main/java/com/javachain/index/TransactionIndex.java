@@ -0,0 +1,76 @@
+package com.javachain.index;
+
+import com.javachain.dto.Hash256;
+import com.javachain.dto.OutPoint;
+import com.javachain.dto.OutgoingTransaction;
+import com.javachain.dto.Transaction;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code TransactionIndex} class keeps the transactions of the blocks the node has seen, by their id.
+ * <p>
+ * Inputs only hold an {@link OutPoint}, the index resolves it to the output it spends.
+ * Only the transactions of blocks that were verified (connected to the unspent outputs of their chain) are added.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   OutgoingTransaction spent = transactionIndex.getOutput(input.getOutPoint());
+ *  </pre></blockquote><p>
+ */
+@Component
+public class TransactionIndex {
+
+    private final Map<Hash256, Transaction> transactions = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the sealed transaction, a transaction that is already in the index is kept.
+     *
+     * @param transaction Transaction sealed
+     */
+    public void add(Transaction transaction) {
+        if (!transaction.isSealed()) {
+            throw new IllegalArgumentException("Only sealed transactions can be indexed");
+        }
+        transactions.putIfAbsent(transaction.getId(), transaction);
+    }
+
+    public boolean contains(Hash256 txid) {
+        return transactions.containsKey(txid);
+    }
+
+    /**
+     * @param txid Hash256
+     * @return Transaction or null if it is not in the index
+     */
+    public Transaction get(Hash256 txid) {
+        return transactions.get(txid);
+    }
+
+    /**
+     * @param outPoint OutPoint
+     * @return OutgoingTransaction the output the out point refers to, null if the transaction is not in the index
+     * or has no such output
+     */
+    public OutgoingTransaction getOutput(OutPoint outPoint) {
+        Transaction transaction = transactions.get(outPoint.getTxid());
+        return transaction == null ? null : getOutput(transaction, outPoint.getIndex());
+    }
+
+    /**
+     * @param transaction Transaction
+     * @param index       int
+     * @return OutgoingTransaction the output of the transaction at the index, null if it has no such output
+     */
+    public static OutgoingTransaction getOutput(Transaction transaction, int index) {
+        List<OutgoingTransaction> outputs = transaction.getOutgoingTransactions();
+        return outputs == null || index < 0 || index >= outputs.size() ? null : outputs.get(index);
+    }
+
+    public int size() {
+        return transactions.size();
+    }
+}
@@ -0,0 +1,275 @@
+package com.javachain.service;
+
+import com.javachain.dto.Block;
+import com.javachain.dto.Transaction;
+import com.javachain.dto.Wallet;
+import com.javachain.exceptions.MiningCancelledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code ContinuousMiningService} class turns the node into a miner that never stops.
+ * <p>
+ * Once started it keeps building blocks from the pending transactions on top of the current chain tip and mines
+ * them on a background thread (the nonce search itself runs on the {@link MiningService} threads).
+ * When a longer chain arrives through {@link WalletService#syncBlockchain(Wallet, Block)} the current search is
+ * cancelled right away and mining restarts on the new tip, so no work is wasted on a stale block.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   continuousMiningService.submitTransaction(transaction);
+ *   continuousMiningService.start(minersWallet);
+ *   ...
+ *   continuousMiningService.stop();
+ *  </pre></blockquote><p>
+ */
+@Service
+public class ContinuousMiningService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContinuousMiningService.class);
+
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    final BlockService blockService;
+
+    final TransactionService transactionService;
+
+    private final List<Transaction> pendingTransactions = new ArrayList<>();
+
+    private volatile boolean running;
+
+    /**
+     * Incremented every time the tip changes, a search started on an older version is stale.
+     */
+    private volatile long tipVersion;
+
+    private Block tip;
+
+    private Wallet minersWallet;
+
+    private Thread minerThread;
+
+    private long blocksMined;
+
+    private long cancelledSearches;
+
+    @Autowired
+    public ContinuousMiningService(BlockService blockService, TransactionService transactionService,
+                                   WalletService walletService) {
+        this.blockService = blockService;
+        this.transactionService = transactionService;
+        walletService.addTipListener(this::onNewTip);
+    }
+
+    /**
+     * Starts mining on top of the wallet's blockchain, the block rewards go to the wallet.
+     *
+     * @param wallet Wallet
+     */
+    public synchronized void start(Wallet wallet) {
+        if (running) {
+            throw new IllegalStateException("Miner is already running");
+        }
+        minersWallet = wallet;
+        tip = wallet.getBlockchain();
+        tipVersion++;
+        running = true;
+        minerThread = new Thread(this::mine, "javachain-miner");
+        minerThread.setDaemon(true);
+        minerThread.start();
+        LOGGER.info("Miner started on top of block {}", tip == null ? null : tip.getHash());
+    }
+
+    /**
+     * Stops mining, the block that is being mined is abandoned.
+     */
+    @PreDestroy
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = minerThread;
+            minerThread = null;
+        }
+        if (thread != null) {
+            try {
+                thread.join(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.info("Miner stopped");
+        }
+    }
+
+    /**
+     * Adds the transaction to the ones that go into the next block (e.g. one created by
+     * {@link TransactionService#send(Wallet, boolean, Wallet...)}).
+     *
+     * @param transaction Transaction
+     */
+    public synchronized void submitTransaction(Transaction transaction) {
+        pendingTransactions.add(transaction);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return Wallet the block rewards go to, null if the miner was never started
+     */
+    public synchronized Wallet getMinersWallet() {
+        return minersWallet;
+    }
+
+    public synchronized Block getTip() {
+        return tip;
+    }
+
+    public synchronized int getPendingTransactions() {
+        return pendingTransactions.size();
+    }
+
+    public synchronized long getBlocksMined() {
+        return blocksMined;
+    }
+
+    public synchronized long getCancelledSearches() {
+        return cancelledSearches;
+    }
+
+    /**
+     * Switches to the synced blockchain if it is longer than the one being mined on.
+     * Bumping the tip version cancels the running search.
+     */
+    synchronized void onNewTip(Wallet wallet, Block blockchain) {
+        if (!running || blockchain == null || blockchain == tip
+                || (tip != null && blockchain.getHeight() <= tip.getHeight())) {
+            return;
+        }
+        LOGGER.info("New tip at height {} arrived, restarting mining", blockchain.getHeight());
+        tip = blockchain;
+        tipVersion++;
+        minersWallet.setBlockchain(blockchain);
+        removePending(blockchain);
+    }
+
+    private void mine() {
+        while (running) {
+            long version;
+            Block previousBlock;
+            List<Transaction> pending;
+            synchronized (this) {
+                version = tipVersion;
+                previousBlock = tip;
+                pending = new ArrayList<>(pendingTransactions);
+            }
+
+            List<Transaction> transactions = Collections.emptyList();
+            try {
+                transactions = selectTransactions(pending, previousBlock);
+                Block block = blockService.mineBlock(minersWallet, transactions, previousBlock,
+                        () -> !running || tipVersion != version);
+                synchronized (this) {
+                    if (tipVersion != version) {
+                        cancelledSearches++;
+                        continue;
+                    }
+                    tip = block;
+                    tipVersion++;
+                    minersWallet.setBlockchain(block);
+                    removePending(transactions);
+                    blocksMined++;
+                }
+                LOGGER.info("Mined block {} at height {} with {} transactions", block.getHash(), block.getHeight(),
+                        block.getTransactionList().size());
+            } catch (MiningCancelledException e) {
+                synchronized (this) {
+                    cancelledSearches++;
+                }
+                LOGGER.debug(e.getMessage());
+            } catch (SecurityException e) {
+                if (transactions.isEmpty()) {
+                    LOGGER.error("Mining failed, stopping the miner", e);
+                    running = false;
+                } else {
+                    LOGGER.warn("Dropping the pending transactions of a block that can't be mined", e);
+                    synchronized (this) {
+                        removePending(transactions);
+                    }
+                }
+            } catch (SignatureException | RuntimeException e) {
+                LOGGER.error("Mining failed, stopping the miner", e);
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Returns the pending transactions that are still valid, invalid ones are dropped. So are the ones spending
+     * an output that is not unspent on the previous block's chain (or spent by an earlier pending transaction),
+     * the block would not connect with them.
+     */
+    private List<Transaction> selectTransactions(List<Transaction> pending, Block previousBlock)
+            throws SignatureException {
+        List<Transaction> valid = new ArrayList<>();
+        List<Transaction> invalid = new ArrayList<>();
+        for (Transaction transaction : pending) {
+            if (transactionService.validateTransaction(transaction)) {
+                valid.add(transaction);
+            } else {
+                LOGGER.warn("Dropping invalid pending transaction {}", transaction.getSignature());
+                invalid.add(transaction);
+            }
+        }
+        List<Transaction> transactions = valid.isEmpty() ? valid : blockService.selectUnspent(previousBlock, valid);
+        if (transactions.size() < valid.size()) {
+            Set<Transaction> selected = Collections.newSetFromMap(new IdentityHashMap<>());
+            selected.addAll(transactions);
+            for (Transaction transaction : valid) {
+                if (!selected.contains(transaction)) {
+                    LOGGER.warn("Dropping pending transaction {} spending an output that is not unspent",
+                            transaction.getSignature());
+                    invalid.add(transaction);
+                }
+            }
+        }
+        if (!invalid.isEmpty()) {
+            synchronized (this) {
+                removePending(invalid);
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Removes the pending transactions that are already part of the blockchain.
+     */
+    private void removePending(Block blockchain) {
+        List<Transaction> included = new ArrayList<>();
+        for (Block block = blockchain; block != null && !pendingTransactions.isEmpty(); block = block.getPreviousBlock()) {
+            included.addAll(block.getTransactionList());
+        }
+        removePending(included);
+    }
+
+    /**
+     * Removes the given transactions from the pending ones (by identity, transactions are mutable).
+     */
+    private void removePending(List<Transaction> transactions) {
+        Set<Transaction> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        toRemove.addAll(transactions);
+        pendingTransactions.removeIf(toRemove::contains);
+    }
+
+}
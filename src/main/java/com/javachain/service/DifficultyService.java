@@ -0,0 +1,147 @@
+package com.javachain.service;
+
+import com.javachain.dto.Block;
+import com.javachain.util.Target;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code DifficultyService} class decides which proof-of-work target applies to a block.
+ * <p>
+ * The target stays the same for {@code retargetInterval} blocks. On every block whose height is a multiple
+ * of the interval it is recomputed from the timestamps of the previous interval: if the blocks came faster
+ * than the target block time the target is lowered (mining gets harder), if they came slower it is raised.
+ * One adjustment is limited to a factor of four and the target never gets easier than {@link Target#LIMIT}.
+ * In Bitcoin the interval is 2016 blocks with a block time of ten minutes.
+ * <p>
+ * Since the timestamps decide the target, a block's timestamp has to be after the median time past (the median of
+ * the previous {@value #MEDIAN_TIME_SPAN} blocks) and at most {@code maxFutureTime} ahead of the clock, so a miner
+ * can't date blocks back or forward to lower the difficulty (time warp).
+ */
+@Service
+public class DifficultyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DifficultyService.class);
+
+    private static final int MAX_ADJUSTMENT_FACTOR = 4;
+
+    static final int MEDIAN_TIME_SPAN = 11;
+
+    private int retargetInterval = 10;
+
+    private Duration targetBlockTime = Duration.ofSeconds(10);
+
+    private Duration maxFutureTime = Duration.ofHours(2);
+
+    @Value("${javachain.difficulty.retarget-interval:10}")
+    public void setRetargetInterval(int retargetInterval) {
+        if (retargetInterval < 2) {
+            throw new IllegalArgumentException("Retarget interval has to be at least 2 blocks");
+        }
+        this.retargetInterval = retargetInterval;
+    }
+
+    @Value("${javachain.difficulty.target-block-time:10s}")
+    public void setTargetBlockTime(Duration targetBlockTime) {
+        this.targetBlockTime = targetBlockTime;
+    }
+
+    @Value("${javachain.difficulty.max-future-time:2h}")
+    public void setMaxFutureTime(Duration maxFutureTime) {
+        this.maxFutureTime = maxFutureTime;
+    }
+
+    public int getRetargetInterval() {
+        return retargetInterval;
+    }
+
+    public Duration getTargetBlockTime() {
+        return targetBlockTime;
+    }
+
+    /**
+     * Returns the target the block mined on top of the given block has to meet.
+     *
+     * @param previousBlock Block (null for the genesis block)
+     * @return Target
+     */
+    public Target nextTarget(Block previousBlock) {
+        if (previousBlock == null) {
+            return Target.INITIAL;
+        }
+        Target previousTarget = Target.fromCompact(previousBlock.getTarget());
+        int height = previousBlock.getHeight() + 1;
+        if (height % retargetInterval != 0) {
+            return previousTarget;
+        }
+
+        Block firstBlock = previousBlock;
+        for (int i = 1; i < retargetInterval && firstBlock.getPreviousBlock() != null; i++) {
+            firstBlock = firstBlock.getPreviousBlock();
+        }
+        long expected = targetBlockTime.toMillis() * (previousBlock.getHeight() - firstBlock.getHeight());
+        long actual = Duration.between(firstBlock.getDateCreated(), previousBlock.getDateCreated()).toMillis();
+        actual = Math.max(expected / MAX_ADJUSTMENT_FACTOR, Math.min(expected * MAX_ADJUSTMENT_FACTOR, actual));
+
+        BigInteger next = previousTarget.getValue()
+                .multiply(BigInteger.valueOf(Math.max(actual, 1)))
+                .divide(BigInteger.valueOf(Math.max(expected, 1)));
+        Target target = next.compareTo(Target.LIMIT.getValue()) > 0 ? Target.LIMIT : Target.fromValue(next);
+        LOGGER.debug("Retargeting at height {}: {} blocks took {} ms (expected {} ms), {} -> {}",
+                height, retargetInterval, actual, expected, previousTarget, target);
+        return target;
+    }
+
+    /**
+     * @param block Block
+     * @return Instant the median timestamp of the block and the blocks before it, {@value #MEDIAN_TIME_SPAN} at most
+     */
+    public Instant medianTimePast(Block block) {
+        List<Instant> timestamps = new ArrayList<>(MEDIAN_TIME_SPAN);
+        for (Block b = block; b != null && timestamps.size() < MEDIAN_TIME_SPAN; b = b.getPreviousBlock()) {
+            timestamps.add(b.getDateCreated());
+        }
+        Collections.sort(timestamps);
+        return timestamps.get(timestamps.size() / 2);
+    }
+
+    /**
+     * Returns the earliest timestamp a block mined on top of the given one may have (timestamps are compared
+     * in milliseconds, as in the block header).
+     *
+     * @param previousBlock Block (null for the genesis block)
+     * @return Instant
+     */
+    public Instant earliestTimestamp(Block previousBlock) {
+        return previousBlock == null ? Instant.EPOCH
+                : Instant.ofEpochMilli(medianTimePast(previousBlock).toEpochMilli() + 1);
+    }
+
+    /**
+     * @param block Block
+     * @return boolean false if the block's timestamp is not after the median time past or too far in the future
+     */
+    public boolean isTimestampValid(Block block) {
+        long timestamp = block.getDateCreated().toEpochMilli();
+        if (timestamp < earliestTimestamp(block.getPreviousBlock()).toEpochMilli()) {
+            LOGGER.info("Block timestamp {} is not after the median time past {}", block.getDateCreated(),
+                    medianTimePast(block.getPreviousBlock()));
+            return false;
+        }
+        if (timestamp > Instant.now().plus(maxFutureTime).toEpochMilli()) {
+            LOGGER.info("Block timestamp {} is more than {} ahead", block.getDateCreated(), maxFutureTime);
+            return false;
+        }
+        return true;
+    }
+
+}
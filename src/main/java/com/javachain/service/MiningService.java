@@ -1,36 +1,187 @@
 package com.javachain.service;
 
+import com.javachain.dto.BlockHeader;
+import com.javachain.dto.MiningResult;
+import com.javachain.exceptions.MiningCancelledException;
 import com.javachain.util.EncodingUtility;
+import com.javachain.util.HashFunction;
 import com.javachain.util.HashingUtility;
+import com.javachain.util.ProofOfWorkKernel;
+import com.javachain.util.Target;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 /**
  * The {@code MiningService} class is used for mining related functionalities.
  * <p>
- * It has supporting methods regarding mining (miningNonce, miningHash).
+ * It has supporting methods regarding mining (proofOfWork, miningNonce, miningHash).
+ * The nonce search can be split across several threads (see {@link #setThreads(int)}),
+ * the result is always the lowest nonce that solves the puzzle, so it does not depend on the thread count.
+ * The puzzle is built on the hash function of the chain ({@link HashingUtility#getHashFunction()}).
+ * <p>
+ * Every search is recorded in Micrometer meters (see {@link #getMeterRegistry()}):
+ * {@code javachain.mining.hashes} (counter, updated while mining), {@code javachain.mining.hashrate}
+ * (hashes per second of the last search), {@code javachain.mining.attempts} (hashes per search),
+ * {@code javachain.mining.time} (time to solve, with a histogram), {@code javachain.mining.difficulty}
+ * (expected hashes of the last puzzle) and {@code javachain.mining.cancelled}.
+ * The mining loop only adds to a {@link LongAdder} once per {@link #NONCE_RANGE_SIZE} hashes,
+ * everything else is recorded once per search.
  */
 @Component
 public class MiningService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MiningService.class);
 
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+    /**
+     * Number of consecutive nonces a worker claims at once when mining in parallel.
+     */
+    static final int NONCE_RANGE_SIZE = 1024;
+
     final HashingUtility hashingUtility;
 
     final EncodingUtility encodingUtility;
 
-    @Autowired
+    private final HashFunction hashFunction;
+
+    private final MeterRegistry meterRegistry;
+
+    private final LongAdder hashes = new LongAdder();
+
+    private final Timer miningTime;
+
+    private final DistributionSummary attemptsPerSearch;
+
+    private final Counter cancelledSearches;
+
+    private volatile double lastHashrate;
+
+    private volatile double difficulty;
+
+    private int threads;
+
+    private ForkJoinPool miningPool;
+
     public MiningService(HashingUtility hashingUtility, EncodingUtility encodingUtility) {
+        this(hashingUtility, encodingUtility, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public MiningService(HashingUtility hashingUtility, EncodingUtility encodingUtility, MeterRegistry meterRegistry) {
         this.hashingUtility = hashingUtility;
         this.encodingUtility = encodingUtility;
+        this.hashFunction = hashingUtility.getHashFunction();
+        this.meterRegistry = meterRegistry;
+        this.threads = Runtime.getRuntime().availableProcessors();
+
+        FunctionCounter.builder("javachain.mining.hashes", hashes, LongAdder::sum)
+                .description("Hashes computed by the nonce search")
+                .register(meterRegistry);
+        Gauge.builder("javachain.mining.hashrate", this, service -> service.lastHashrate)
+                .description("Hashes per second of the last search")
+                .baseUnit("hashes/s")
+                .register(meterRegistry);
+        Gauge.builder("javachain.mining.difficulty", this, service -> service.difficulty)
+                .description("Expected number of hashes of the last puzzle")
+                .register(meterRegistry);
+        miningTime = Timer.builder("javachain.mining.time")
+                .description("Time to solve a puzzle")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        attemptsPerSearch = DistributionSummary.builder("javachain.mining.attempts")
+                .description("Hashes needed to solve a puzzle")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        cancelledSearches = Counter.builder("javachain.mining.cancelled")
+                .description("Searches given up because the puzzle became stale")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sets the number of threads used for the nonce search.
+     * Zero or a negative value means one thread per available processor.
+     *
+     * @param threads int
+     */
+    @Value("${javachain.mining.threads:0}")
+    public void setThreads(int threads) {
+        int resolved = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        synchronized (this) {
+            if (resolved != this.threads && miningPool != null) {
+                miningPool.shutdown();
+                miningPool = null;
+            }
+            this.threads = resolved;
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    /**
+     * @return Timer time to solve a puzzle, its count is the number of finished searches
+     */
+    public Timer getMiningTime() {
+        return miningTime;
+    }
+
+    public DistributionSummary getAttemptsPerSearch() {
+        return attemptsPerSearch;
+    }
+
+    public long getHashes() {
+        return hashes.sum();
+    }
+
+    public double getLastHashrate() {
+        return lastHashrate;
+    }
+
+    public double getDifficulty() {
+        return difficulty;
+    }
+
+    public long getCancelledSearches() {
+        return (long) cancelledSearches.count();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (miningPool != null) {
+            miningPool.shutdownNow();
+            miningPool = null;
+        }
     }
 
     /**
@@ -62,33 +213,133 @@ public class MiningService {
      * The more you increase the number of leading ones you require, the harder it becomes (on average) to find a nonce.
      * In bitcoin, this is called the mining difficulty. Note that bitcoin doesn't require a number of leading digits,
      * but instead requires the hash to be below a certain value. But it's the same idea.
+     * <p>
+     * The search runs only once and returns everything it found (nonce, digest, attempts and elapsed time).
+     *
+     * @param message    String
+     * @param difficulty int
+     * @return MiningResult
+     */
+    public MiningResult proofOfWork(String message, int difficulty) {
+        return proofOfWork(message, difficulty, threads);
+    }
+
+    /**
+     * Same as {@link #proofOfWork(String, int)}, but with an explicit number of threads.
+     *
+     * @param message    String
+     * @param difficulty int
+     * @param threads    int number of threads to search with (1 = sequential search)
+     * @return MiningResult
+     */
+    public MiningResult proofOfWork(String message, int difficulty, int threads) {
+        if (difficulty < 1) { // extra precondition check, difficulty is supposed to be always bigger or equal to 1.
+            return proofOfWork(kernelsFor(message), (kernel, nonce) -> true, 1, 1, NEVER_CANCELLED);
+        }
+        return proofOfWork(kernelsFor(message), (kernel, nonce) -> kernel.hasLeadingOnes(nonce, difficulty),
+                Math.pow(16, difficulty), threads, NEVER_CANCELLED);
+    }
+
+    /**
+     * Searches for the nonce that makes the digest of {@code message + nonce} (read as a 256-bit number)
+     * lower than the target. This is the rule blocks are mined with, see {@link DifficultyService}.
+     *
+     * @param message String
+     * @param target  Target
+     * @return MiningResult
+     */
+    public MiningResult proofOfWork(String message, Target target) {
+        return proofOfWork(message, target, NEVER_CANCELLED);
+    }
+
+    /**
+     * Same as {@link #proofOfWork(String, Target)}, but the search gives up as soon as {@code cancelled}
+     * returns true. It is polled once per {@link #NONCE_RANGE_SIZE} attempts by every thread,
+     * so it has to be cheap (e.g. reading a volatile field).
+     *
+     * @param message   String
+     * @param target    Target
+     * @param cancelled BooleanSupplier
+     * @return MiningResult
+     * @throws MiningCancelledException if the search was cancelled before a nonce was found
+     */
+    public MiningResult proofOfWork(String message, Target target, BooleanSupplier cancelled) {
+        return proofOfWork(kernelsFor(message), (kernel, nonce) -> target.isMetBy(kernel.hash(nonce)),
+                target.getExpectedAttempts(), threads, cancelled);
+    }
+
+    /**
+     * Searches for the nonce that makes the hash of the block header (see {@link BlockHeader#encode()})
+     * lower than the target. Only the fixed size header is hashed, so the cost of an attempt does not depend
+     * on the size of the block or the length of the chain.
+     *
+     * @param header    BlockHeader, its nonce is ignored
+     * @param target    Target
+     * @param cancelled BooleanSupplier
+     * @return MiningResult
+     * @throws MiningCancelledException if the search was cancelled before a nonce was found
+     */
+    public MiningResult proofOfWork(BlockHeader header, Target target, BooleanSupplier cancelled) {
+        return proofOfWork(() -> ProofOfWorkKernel.forHeader(hashFunction, header),
+                (kernel, nonce) -> target.isMetBy(kernel.hash(nonce)), target.getExpectedAttempts(), threads, cancelled);
+    }
+
+    private Supplier<ProofOfWorkKernel> kernelsFor(String message) {
+        byte[] prefix = message.getBytes(StandardCharsets.UTF_8);
+        return () -> new ProofOfWorkKernel(hashFunction, prefix);
+    }
+
+    private MiningResult proofOfWork(Supplier<ProofOfWorkKernel> kernels, NonceCondition condition,
+                                     double expectedAttempts, int threads, BooleanSupplier cancelled) {
+        long started = System.nanoTime();
+        difficulty = expectedAttempts;
+        LongAdder attempts = new LongAdder();
+        long nonce = findNonce(kernels, condition, threads, attempts, cancelled);
+        if (nonce < 0) {
+            cancelledSearches.increment();
+            throw new MiningCancelledException("Mining was cancelled after " + attempts.sum() + " attempts");
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        Duration elapsed = Duration.ofNanos(elapsedNanos);
+        miningTime.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        attemptsPerSearch.record(attempts.sum());
+        lastHashrate = attempts.sum() * 1e9 / Math.max(elapsedNanos, 1);
+        String digest = encodingUtility.bytesToHex(kernels.get().hash(nonce));
+        return new MiningResult(nonce, digest, attempts.sum(), elapsed);
+    }
+
+    /**
+     * Returns only the nonce found by {@link #proofOfWork(String, int)}.
      *
      * @param message    String
      * @param difficulty int
      * @return String
      */
     public String mineNonce(String message, int difficulty) {
-        long nrOfIterationsToMineNonce = 0;
-        String prefix = generatePrefix(difficulty);
-        while (difficulty >= 1) { // extra precondition check if difficulty is bigger or higher than 1. It is suppose to be always true.
-            String digest = hashingUtility.hexHash(message + nrOfIterationsToMineNonce);
-            if (digest.startsWith(prefix))
-                return String.valueOf(nrOfIterationsToMineNonce);
-            nrOfIterationsToMineNonce += 1;
-        }
-        return String.valueOf(nrOfIterationsToMineNonce);
+        return mineNonce(message, difficulty, threads);
+    }
+
+    /**
+     * Same as {@link #mineNonce(String, int)}, but with an explicit number of threads.
+     *
+     * @param message    String
+     * @param difficulty int
+     * @param threads    int number of threads to search with (1 = sequential search)
+     * @return String
+     */
+    public String mineNonce(String message, int difficulty, int threads) {
+        return String.valueOf(proofOfWork(message, difficulty, threads).getNonce());
     }
 
+    /**
+     * Returns only the digest found by {@link #proofOfWork(String, int)}.
+     *
+     * @param message    String
+     * @param difficulty int
+     * @return String
+     */
     public String mineDigest(String message, int difficulty) {
-        long nrOfIterationsToMineNonce = 0;
-        String prefix = generatePrefix(difficulty);
-        while (difficulty >= 1) { // extra precondition check if difficulty is bigger or higher than 1. It is suppose to be always true.
-            String digest = hashingUtility.hexHash(message + nrOfIterationsToMineNonce);
-            if (digest.startsWith(prefix))
-                return digest;
-            nrOfIterationsToMineNonce += 1;
-        }
-        return String.valueOf(nrOfIterationsToMineNonce);
+        return proofOfWork(message, difficulty).getDigest();
     }
 
     public String generatePrefix(int difficulty) {
@@ -100,25 +351,100 @@ public class MiningService {
         return prefix;
     }
 
-    public String mine(String message, int difficulty) throws NoSuchAlgorithmException {
-        long nrOfIterationsToMineNonce = 0;
-        MessageDigest digest = MessageDigest.getInstance(HashingUtility.CRYPTO_HASH_ALGORITHM);
-        String prefix = IntStream.range(0, difficulty).mapToObj(j -> "1").collect(Collectors.joining());
-        StringBuilder result = new StringBuilder();
-        while (difficulty >= 1) { // extra precondition check if difficulty is bigger or higher than 1. It is suppose to be always true.
+    public String mine(String message, int difficulty) {
+        return String.valueOf(proofOfWork(message, difficulty, 1).getNonce());
+    }
 
-            result.setLength(0);
-            byte[] bytes = digest.digest((message + nrOfIterationsToMineNonce).getBytes(StandardCharsets.UTF_8));
+    /**
+     * Finds the lowest nonce that meets the condition.
+     * Every thread hashes with its own {@link ProofOfWorkKernel}, so the search does not allocate per attempt.
+     * With more than one thread the nonce space is handed out in ranges of {@link #NONCE_RANGE_SIZE}
+     * (in increasing order), so every range below the best solution is always searched completely
+     * and the result is the same as the one of the sequential search.
+     * Returns -1 if the search was cancelled.
+     */
+    private long findNonce(Supplier<ProofOfWorkKernel> kernels, NonceCondition condition, int threads,
+                           LongAdder attempts, BooleanSupplier cancelled) {
+        if (threads <= 1) {
+            ProofOfWorkKernel kernel = kernels.get();
+            long nonce = 0;
+            while (!condition.isMet(kernel, nonce)) {
+                nonce += 1;
+                if (nonce % NONCE_RANGE_SIZE == 0) {
+                    attempts.add(NONCE_RANGE_SIZE);
+                    hashes.add(NONCE_RANGE_SIZE);
+                    if (cancelled.getAsBoolean()) {
+                        return -1;
+                    }
+                }
+            }
+            attempts.add(nonce % NONCE_RANGE_SIZE + 1);
+            hashes.add(nonce % NONCE_RANGE_SIZE + 1);
+            return nonce;
+        }
 
-            for (byte byt : bytes) {
-                result.append(Integer.toString((byt & 0xff) + 0x100, 16).substring(1));
+        AtomicLong nextRange = new AtomicLong();
+        AtomicLong solution = new AtomicLong(Long.MAX_VALUE);
+        Runnable worker = () -> {
+            ProofOfWorkKernel kernel = kernels.get();
+            long start;
+            while ((start = nextRange.getAndAdd(NONCE_RANGE_SIZE)) < solution.get()) {
+                if (cancelled.getAsBoolean()) {
+                    solution.set(-1); // stops the remaining workers
+                    return;
+                }
+                long end = start + NONCE_RANGE_SIZE;
+                long nonce = start;
+                for (; nonce < end && nonce < solution.get(); nonce++) {
+                    if (condition.isMet(kernel, nonce)) {
+                        solution.accumulateAndGet(nonce, Math::min);
+                        nonce++;
+                        break;
+                    }
+                }
+                attempts.add(nonce - start);
+                hashes.add(nonce - start);
+            }
+        };
+
+        ForkJoinPool sharedPool = miningPool();
+        ForkJoinPool pool = threads == sharedPool.getParallelism() ? sharedPool : new ForkJoinPool(threads);
+        List<Future<?>> workers = new ArrayList<>(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.add(pool.submit(worker));
+            }
+            for (Future<?> future : workers) {
+                future.get();
             }
+        } catch (InterruptedException e) {
+            solution.set(-1); // stops the remaining workers
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Mining was interrupted", e);
+        } catch (ExecutionException e) {
+            solution.set(-1);
+            throw new IllegalStateException("Mining failed", e.getCause());
+        } finally {
+            if (pool != sharedPool) {
+                pool.shutdown();
+            }
+        }
+        return solution.get();
+    }
 
-            if (result.toString().startsWith(prefix))
-                return String.valueOf(nrOfIterationsToMineNonce);
-            nrOfIterationsToMineNonce += 1;
+    private synchronized ForkJoinPool miningPool() {
+        if (miningPool == null) {
+            miningPool = new ForkJoinPool(threads);
         }
-        return String.valueOf(nrOfIterationsToMineNonce);
+        return miningPool;
+    }
+
+    /**
+     * The proof-of-work rule a nonce has to satisfy.
+     */
+    @FunctionalInterface
+    private interface NonceCondition {
+        boolean isMet(ProofOfWorkKernel kernel, long nonce);
     }
 
 }
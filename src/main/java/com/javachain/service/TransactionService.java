@@ -1,22 +1,37 @@
 package com.javachain.service;
 
 import com.javachain.dto.*;
+import com.javachain.index.ChainState;
+import com.javachain.index.TransactionIndex;
+import com.javachain.util.CoinSelection;
 import com.javachain.util.EncryptionUtility;
 import com.javachain.util.HashingUtility;
+import com.javachain.util.SignatureCache;
+import com.javachain.util.TransactionEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.security.PublicKey;
 import java.security.SignatureException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The {@code TransactionService} class is used for block related functionalities.
  * <p>
  * It has supporting methods for mining fees, validation and sending tokens.
+ * Transactions are signed and verified over their canonical encoding (see {@link TransactionEncoder}).
+ * Inputs are resolved through the {@link TransactionIndex}, parent transactions are not validated again
+ * (they were validated with the blocks that contain them).
+ * Verified signatures are remembered in the {@link SignatureCache}, so validating the chain again skips RSA.
+ * The inputs of a new transaction are selected from the sender's unspent outputs kept in the {@link ChainState}
+ * (see {@link CoinSelection}), what they hold above the sent amount goes back to the sender as change.
  */
 @Service
 public class TransactionService {
@@ -29,116 +44,256 @@ public class TransactionService {
 
     final MiningService miningService;
 
+    final TransactionEncoder transactionEncoder;
+
+    final TransactionIndex transactionIndex;
+
+    final SignatureCache signatureCache;
+
+    final ChainState chainState;
+
     @Autowired
-    public TransactionService(EncryptionUtility encryptionUtility, HashingUtility hashingUtility, MiningService miningService) {
+    public TransactionService(EncryptionUtility encryptionUtility, HashingUtility hashingUtility,
+                              MiningService miningService, TransactionEncoder transactionEncoder,
+                              TransactionIndex transactionIndex, SignatureCache signatureCache,
+                              ChainState chainState) {
         this.encryptionUtility = encryptionUtility;
         this.hashingUtility = hashingUtility;
         this.miningService = miningService;
+        this.transactionEncoder = transactionEncoder;
+        this.transactionIndex = transactionIndex;
+        this.signatureCache = signatureCache;
+        this.chainState = chainState;
     }
 
+    /**
+     * Creates a signed transaction paying the amount to be sent of every receiver, the change goes back to the sender.
+     *
+     * @param senderWallet   Wallet
+     * @param isInitial      boolean true for the block incentive, it spends nothing
+     * @param receiverWallets Wallet...
+     * @return Transaction sealed
+     * @throws IllegalStateException if the unspent outputs of the sender don't cover the amount
+     */
     public Transaction send(Wallet senderWallet, boolean isInitial, Wallet... receiverWallets) {
+        List<OutgoingTransaction> outTransactions = new ArrayList<>();
+        for (Wallet receiverWallet : receiverWallets) {
+            outTransactions.add(new OutgoingTransaction(receiverWallet.address(), receiverWallet.getAmountToBeSent()));
+        }
+        return send(senderWallet, isInitial, outTransactions);
+    }
+
+    /**
+     * Same as {@link #send(Wallet, boolean, Wallet...)} with the outputs given, so no wallet is changed to carry
+     * the amounts (a wallet can be shared, e.g. by the background miner).
+     *
+     * @param senderWallet Wallet
+     * @param isInitial    boolean true for the block incentive, it spends nothing
+     * @param outputs      List of the payments, the change output is added to a copy
+     * @return Transaction sealed
+     * @throws IllegalStateException if the unspent outputs of the sender don't cover the amount
+     */
+    public Transaction send(Wallet senderWallet, boolean isInitial, List<OutgoingTransaction> outputs) {
 
         Transaction transaction = new Transaction();
         transaction.setIncludeSignature(false);
-        transaction.setFee(BigDecimal.ZERO);// TODO for now this is disabled
+        transaction.setFeeUnits(0);// TODO for now this is disabled
         transaction.setWallet(senderWallet);
         transaction.setInitial(isInitial);
 
-        List<OutgoingTransaction> outTransactions = new ArrayList<>();
-        for (Wallet receiverWallet : receiverWallets) {
-            OutgoingTransaction outTransaction = new OutgoingTransaction(receiverWallet.address(), receiverWallet.getAmountToBeSent());
-            outTransactions.add(outTransaction);
+        List<OutgoingTransaction> outTransactions = new ArrayList<>(outputs);
+        long amount = 0;
+        for (OutgoingTransaction outTransaction : outTransactions) {
+            amount = Amount.add(amount, outTransaction.getAmountUnits());
         }
-        transaction.setOutgoingTransactions(outTransactions);
 
-        List<IncomingTransaction> inTransactions = getPreviousInTransactions(senderWallet);
+        // coinbase transactions create the block incentive, they spend nothing
+        List<IncomingTransaction> inTransactions = new ArrayList<>();
+        if (!isInitial) {
+            Map<OutPoint, OutgoingTransaction> unspent = getUnspentOutputs(senderWallet);
+            long selected = 0;
+            for (OutPoint outPoint : CoinSelection.largestFirst(unspent, amount)) {
+                inTransactions.add(new IncomingTransaction(outPoint));
+                selected = Amount.add(selected, unspent.get(outPoint).getAmountUnits());
+            }
+            if (selected < amount) {
+                throw new IllegalStateException("Unspent outputs of the sender (" + Amount.toDecimal(selected)
+                        + ") don't cover the amount " + Amount.toDecimal(amount));
+            }
+            if (selected > amount) {
+                outTransactions.add(new OutgoingTransaction(senderWallet.address(), Amount.subtract(selected, amount)));
+            }
+        }
+        transaction.setOutgoingTransactions(outTransactions);
         transaction.setIncomingTransactions(inTransactions);
-        transaction.setSignature(encryptionUtility.sign(transaction.toString(), senderWallet.getPrivateKey()));
+        transaction.setSignature(encryptionUtility.sign(transactionEncoder.encode(transaction), senderWallet.getPrivateKey()));
+        transactionEncoder.seal(transaction);
 
         return transaction;
     }
 
-    public List<IncomingTransaction> getPreviousInTransactions(Wallet senderWallet) {
-
-        List<IncomingTransaction> inTransactions = new ArrayList<>();
-        Block block = senderWallet.getBlockchain();
-
-        //get last outTr for wallet
-        while (block != null) {
-            List<Transaction> transactions = block.getTransactionList();
-            for (Transaction tr : transactions) {
-                for (OutgoingTransaction otr : tr.getOutgoingTransactions()) {
-                    if (otr.getRecipientAddress().equals(senderWallet.getPublicKey())) {
-                        IncomingTransaction intr = new IncomingTransaction(tr, 0);
-                        inTransactions.add(intr);
-                    }
-                }
-                //we just need transaction in last blocks
-                if (!inTransactions.isEmpty())
-                    return inTransactions;
+    /**
+     * Looks up the unspent outputs of the wallet on its blockchain in the {@link ChainState} if the wallet is on
+     * its tip, the last verified chain. Another chain is connected to a state of its own, the shared state is
+     * never moved by a lookup.
+     *
+     * @param wallet Wallet
+     * @return Map the unspent outputs by out point, empty if the wallet's chain can't be connected
+     */
+    public Map<OutPoint, OutgoingTransaction> getUnspentOutputs(Wallet wallet) {
+        Block blockchain = wallet.getBlockchain();
+        if (blockchain == null || !blockchain.isSealed()) {
+            return new HashMap<>();
+        }
+        synchronized (chainState) {
+            if (chainState.getTip() == blockchain) {
+                return chainState.getUnspent(wallet.address());
             }
-            block = block.getPreviousBlock();
         }
-        return inTransactions;
+        ChainState state = new ChainState();
+        if (state.moveTo(blockchain)) {
+            return state.getUnspent(wallet.address());
+        }
+        LOGGER.info("Chain of block {} can't be connected, it has no spendable outputs", blockchain.getHash());
+        return new HashMap<>();
     }
 
+    /**
+     * Checks that all inputs spend known outputs of one wallet and that the transaction is signed by that wallet.
+     * Only initial (coinbase) transactions spend nothing.
+     *
+     * @param transaction Transaction
+     * @return boolean
+     * @throws SignatureException if the signature can't be processed
+     */
     public boolean validateTransaction(Transaction transaction) throws SignatureException {
+        return validateTransaction(transaction, Collections.emptyMap());
+    }
 
-        String transactionMessage = transaction.toString();
-        if (transaction.isInitial() || transaction.getIncomingTransactions() == null || transaction.getIncomingTransactions().isEmpty())
-            return true;
+    /**
+     * Same as {@link #validateTransaction(Transaction)}, inputs are resolved from the pending transactions first
+     * (e.g. of the blocks being verified, they are added to the {@link TransactionIndex} once the blocks are valid).
+     *
+     * @param transaction Transaction
+     * @param pending     Map of the transactions not in the index yet, by id
+     * @return boolean
+     * @throws SignatureException if the signature can't be processed
+     */
+    public boolean validateTransaction(Transaction transaction, Map<Hash256, Transaction> pending)
+            throws SignatureException {
 
-        OutgoingTransaction firstInputAddress = transaction.getIncomingTransactions().get(0).getRecipient();
-        if (firstInputAddress != null && !encryptionUtility.verifySignature(transactionMessage, transaction.getSignature(),
-                firstInputAddress.getRecipientAddress())) {
-            LOGGER.info(("Invalid transaction signature, trying to spend someone else's money ?"));
+        if (transaction.isInitial())
+            return true;
+        if (transaction.getIncomingTransactions() == null || transaction.getIncomingTransactions().isEmpty()) {
+            LOGGER.info("Transaction spends nothing and is not initial");
             return false;
         }
 
+        PublicKey owner = null;
+        long inSum = 0;
         for (IncomingTransaction inTransaction : transaction.getIncomingTransactions()) {
-            if (inTransaction.getRecipient() != null && !validateTransaction(inTransaction.getTransaction())) {
-                LOGGER.info("Invalid parent transaction");
+            OutPoint outPoint = inTransaction.getOutPoint();
+            Transaction parent = pending.get(outPoint.getTxid());
+            OutgoingTransaction spent = parent == null ? transactionIndex.getOutput(outPoint)
+                    : TransactionIndex.getOutput(parent, outPoint.getIndex());
+            if (spent == null) {
+                LOGGER.info("Transaction spends an unknown output {}", outPoint);
                 return false;
             }
-        }
-
-        for (int i = 1; i < transaction.getIncomingTransactions().size(); i++) { //starts with one
-            IncomingTransaction inTransaction = transaction.getIncomingTransactions().get(i);
-            if (!inTransaction.getRecipient().equals(firstInputAddress)) {
+            if (owner == null) {
+                owner = spent.getRecipientAddress();
+            } else if (!owner.equals(spent.getRecipientAddress())) {
                 LOGGER.info("Transaction inputs belong to multiple wallets ({} and {})",
-                        inTransaction.getRecipient(), firstInputAddress);
+                        spent.getRecipientAddress(), owner);
                 return false;
             }
+            try {
+                inSum = Amount.add(inSum, spent.getAmountUnits());
+            } catch (ArithmeticException e) {
+                LOGGER.info("Transaction inputs overflow");
+                return false;
+            }
+        }
+        if (!coversOutputs(transaction, inSum)) {
+            return false;
+        }
+
+        byte[] message = transactionEncoder.encode(transaction);
+        byte[] txid = hashingUtility.hash(message);
+        String signature = transaction.getSignature();
+        if (signature != null && signatureCache.contains(txid, signature, owner)) {
+            return true;
+        }
+        if (!encryptionUtility.verifySignature(message, signature, owner)) {
+            LOGGER.info(("Invalid transaction signature, trying to spend someone else's money ?"));
+            return false;
+        }
+        signatureCache.add(txid, signature, owner);
+        return true;
+    }
+
+    /**
+     * Outputs may not be negative nor pay more than the inputs, a transaction can't create money.
+     */
+    private static boolean coversOutputs(Transaction transaction, long inSum) {
+        long outSum = 0;
+        if (transaction.getOutgoingTransactions() != null) {
+            for (OutgoingTransaction outTransaction : transaction.getOutgoingTransactions()) {
+                if (outTransaction.getAmountUnits() < 0) {
+                    LOGGER.info("Transaction pays a negative amount {}", outTransaction.getAmount());
+                    return false;
+                }
+                try {
+                    outSum = Amount.add(outSum, outTransaction.getAmountUnits());
+                } catch (ArithmeticException e) {
+                    LOGGER.info("Transaction outputs overflow");
+                    return false;
+                }
+            }
+        }
+        if (outSum > inSum) {
+            LOGGER.info("Transaction pays {}, its inputs only have {}", Amount.toDecimal(outSum), Amount.toDecimal(inSum));
+            return false;
         }
         return true;
     }
 
     public BigDecimal computeTotalFee(List<Transaction> transactionList) {
-        BigDecimal sum = BigDecimal.ZERO;
+        long sum = 0;
         for (Transaction tr : transactionList) {
-            tr.setFee(tr.isInitial() ? BigDecimal.ZERO : fee(tr.getIncomingTransactions(), tr.getOutgoingTransactions()));
-            sum = sum.add(tr.getFee());
+            tr.setFeeUnits(tr.isInitial() ? 0 : fee(tr.getIncomingTransactions(), tr.getOutgoingTransactions()));
+            sum = Amount.add(sum, tr.getFeeUnits());
         }
-        return sum;
+        return Amount.toDecimal(sum);
     }
 
     /**
      * Transaction fee - if the output value of a transaction is
      * less than its input value, the difference is a transaction fee that is added to the incentive value of
      * the block containing the transaction.
+     *
+     * @return long the fee in {@link Amount} units
+     * @throws IllegalArgumentException if an input spends an unknown output or the outputs exceed the inputs
      */
-    public BigDecimal fee(List<IncomingTransaction> ins, List<OutgoingTransaction> outs) {
-        BigDecimal inSum = BigDecimal.ZERO;
+    public long fee(List<IncomingTransaction> ins, List<OutgoingTransaction> outs) {
+        long inSum = 0;
 
         for (IncomingTransaction i : ins) {
-            inSum = inSum.add(i.parentOutPut().getAmount());
+            OutgoingTransaction spent = transactionIndex.getOutput(i.getOutPoint());
+            if (spent == null) {
+                throw new IllegalArgumentException("Unknown output " + i.getOutPoint());
+            }
+            inSum = Amount.add(inSum, spent.getAmountUnits());
         }
-        BigDecimal outSum = BigDecimal.ZERO;
+        long outSum = 0;
         for (OutgoingTransaction o : outs) {
-            outSum = outSum.add(o.getAmount());
+            outSum = Amount.add(outSum, o.getAmountUnits());
+        }
+        if (inSum < outSum) {
+            throw new IllegalArgumentException("Outputs " + Amount.toDecimal(outSum) + " exceed the inputs "
+                    + Amount.toDecimal(inSum));
         }
-        assert (inSum.compareTo(outSum) >= 0);
-        return inSum.subtract(outSum);
+        return Amount.subtract(inSum, outSum);
     }
 
 }
@@ -4,6 +4,8 @@ import com.javachain.dto.Block;
 import com.javachain.dto.Wallet;
 import com.javachain.util.EncryptionUtility;
 import com.javachain.util.HashingUtility;
+import com.javachain.util.KeyPairPool;
+import com.javachain.util.KeyType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,12 +14,17 @@ import org.springframework.stereotype.Service;
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 /**
  * The {@code WalletService} class is used for wallet related functionalities.
  * It is uses interface for interaction with other wallets.
  * <p>
  * It has supporting method for syncing blockchain.
+ * Components that depend on the chain tip (e.g. {@link ContinuousMiningService}) can register a tip listener,
+ * it is called after every successful sync.
  */
 @Service
 public class WalletService {
@@ -29,20 +36,25 @@ public class WalletService {
     final MiningService miningService;
     final TransactionService transactionService;
     final BlockService blockService;
+    final KeyPairPool keyPairPool;
+
+    private final List<BiConsumer<Wallet, Block>> tipListeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public WalletService(EncryptionUtility encryptionUtility, HashingUtility hashingUtility, MiningService miningService,
-                         TransactionService transactionService, BlockService blockService) {
+                         TransactionService transactionService, BlockService blockService,
+                         KeyPairPool keyPairPool) {
         this.encryptionUtility = encryptionUtility;
         this.hashingUtility = hashingUtility;
         this.miningService = miningService;
         this.transactionService = transactionService;
         this.blockService = blockService;
+        this.keyPairPool = keyPairPool;
     }
 
     public Wallet syncBlockchain(Wallet wallet, Block blockchain)
             throws SignatureException {
-        if (!blockService.verifyBlock(blockchain)) {
+        if (!blockService.verifyChain(blockchain)) {
             LOGGER.error("Invalid block present");
             throw new SecurityException("Invalid block present");
         }
@@ -51,12 +63,52 @@ public class WalletService {
             throw new SecurityException("Trying to sync with smaller block");
         }
         wallet.setBlockchain(blockchain);
+        for (BiConsumer<Wallet, Block> tipListener : tipListeners) {
+            tipListener.accept(wallet, blockchain);
+        }
         return wallet;
     }
 
+    /**
+     * Registers a listener that is called with the wallet and its new chain tip after every successful sync.
+     * Listeners run on the syncing thread, so they should only hand the tip over and return.
+     *
+     * @param tipListener BiConsumer
+     */
+    public void addTipListener(BiConsumer<Wallet, Block> tipListener) {
+        tipListeners.add(tipListener);
+    }
+
+    public void removeTipListener(BiConsumer<Wallet, Block> tipListener) {
+        tipListeners.remove(tipListener);
+    }
+
+    /**
+     * Creates a wallet with a key pair of the configured type, pre-generated by the {@link KeyPairPool} if one is ready.
+     *
+     * @param signer String
+     * @return Wallet
+     * @throws NoSuchAlgorithmException if the JDK doesn't support the key type
+     */
     public Wallet generateNewWallet(String signer) throws NoSuchAlgorithmException {
         LOGGER.info("Generating new wallet for : {}", signer);
-        KeyPair keyPair = encryptionUtility.generateKeyPair();
+        return createWallet(signer, keyPairPool.take());
+    }
+
+    /**
+     * Creates a wallet with a new key pair of the given type (instead of the configured one).
+     *
+     * @param signer  String
+     * @param keyType KeyType
+     * @return Wallet
+     * @throws NoSuchAlgorithmException if the JDK doesn't support the key type
+     */
+    public Wallet generateNewWallet(String signer, KeyType keyType) throws NoSuchAlgorithmException {
+        LOGGER.info("Generating new {} wallet for : {}", keyType.getName(), signer);
+        return createWallet(signer, encryptionUtility.generateKeyPair(keyType));
+    }
+
+    private Wallet createWallet(String signer, KeyPair keyPair) {
         Wallet wallet = new Wallet();
         wallet.setSigner(signer);
         wallet.setPrivateKey(keyPair.getPrivate());
@@ -0,0 +1,54 @@
+package com.javachain.util;
+
+import com.javachain.dto.Amount;
+import com.javachain.dto.OutPoint;
+import com.javachain.dto.OutgoingTransaction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code CoinSelection} class picks the unspent outputs a transaction spends.
+ * <p>
+ * Largest first: the outputs are taken from the largest amount down until they cover the amount, so a payment
+ * spends as few outputs as possible. Outputs of the same amount are taken in out point order, the same unspent
+ * outputs always give the same selection. If the outputs don't cover the amount, all of them are selected.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   List&lt;OutPoint&gt; inputs = CoinSelection.largestFirst(chainState.getUnspent(address), amount);
+ *  </pre></blockquote><p>
+ */
+public final class CoinSelection {
+
+    private static final Comparator<Map.Entry<OutPoint, OutgoingTransaction>> LARGEST_FIRST =
+            Comparator.<Map.Entry<OutPoint, OutgoingTransaction>>comparingLong(entry -> entry.getValue().getAmountUnits())
+                    .reversed()
+                    .thenComparing(entry -> entry.getKey().getTxid().toHex())
+                    .thenComparingInt(entry -> entry.getKey().getIndex());
+
+    private CoinSelection() {
+    }
+
+    /**
+     * @param unspent Map of the spendable outputs by out point
+     * @param amount  long to be covered, in {@link Amount} units
+     * @return List of the selected out points, largest amount first
+     */
+    public static List<OutPoint> largestFirst(Map<OutPoint, OutgoingTransaction> unspent, long amount) {
+        List<Map.Entry<OutPoint, OutgoingTransaction>> candidates = new ArrayList<>(unspent.entrySet());
+        candidates.sort(LARGEST_FIRST);
+        List<OutPoint> selected = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<OutPoint, OutgoingTransaction> candidate : candidates) {
+            if (total >= amount) {
+                break;
+            }
+            selected.add(candidate.getKey());
+            total = Amount.add(total, candidate.getValue().getAmountUnits());
+        }
+        return selected;
+    }
+}
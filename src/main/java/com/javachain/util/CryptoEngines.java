@@ -0,0 +1,107 @@
+package com.javachain.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-thread {@link Signature} and {@link Cipher} engines, so signing and verifying doesn't look up a provider
+ * and build a new engine on every call.
+ * <p>
+ * Signers are kept per {@link KeyType} and initialised with the key on every call. Verifiers are kept initialised
+ * per public key (the last {@value #MAX_VERIFIERS_PER_THREAD} keys used on the thread): verifying transactions
+ * of the same wallets again only updates and verifies. An engine is only ever used by its own thread.
+ */
+final class CryptoEngines {
+
+    static final int MAX_VERIFIERS_PER_THREAD = 256;
+
+    private static final ThreadLocal<Map<KeyType, Signature>> SIGNERS =
+            ThreadLocal.withInitial(() -> new EnumMap<>(KeyType.class));
+
+    private static final ThreadLocal<Map<PublicKey, Signature>> VERIFIERS =
+            ThreadLocal.withInitial(() -> new LinkedHashMap<PublicKey, Signature>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<PublicKey, Signature> eldest) {
+                    return size() > MAX_VERIFIERS_PER_THREAD;
+                }
+            });
+
+    private static final ThreadLocal<Cipher> RSA_CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(EncryptionUtility.CIPHER);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException("Cipher " + EncryptionUtility.CIPHER + " is not available", e);
+        }
+    });
+
+    private CryptoEngines() {
+    }
+
+    /**
+     * @param privateKey PrivateKey
+     * @return Signature the engine of this thread for the type of the key, initialised for signing with it
+     * @throws InvalidKeyException if the key can't be used for signing
+     */
+    static Signature signer(PrivateKey privateKey) throws InvalidKeyException {
+        KeyType keyType = KeyType.forKey(privateKey);
+        Signature signature = SIGNERS.get().computeIfAbsent(keyType, CryptoEngines::newSignature);
+        signature.initSign(privateKey);
+        return signature;
+    }
+
+    /**
+     * @param publicKey PublicKey
+     * @return Signature the engine of this thread initialised for verifying with the key
+     * @throws InvalidKeyException if the key can't be used for verification
+     */
+    static Signature verifier(PublicKey publicKey) throws InvalidKeyException {
+        Map<PublicKey, Signature> verifiers = VERIFIERS.get();
+        Signature signature = verifiers.get(publicKey);
+        if (signature == null) {
+            signature = newSignature(KeyType.forKey(publicKey));
+            signature.initVerify(publicKey);
+            verifiers.put(publicKey, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * Drops the verifier of the key, e.g. after it failed and its state is unknown.
+     */
+    static void discardVerifier(PublicKey publicKey) {
+        VERIFIERS.get().remove(publicKey);
+    }
+
+    static int verifierCount() {
+        return VERIFIERS.get().size();
+    }
+
+    /**
+     * @param mode int {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}
+     * @param key  Key RSA public key to encrypt, private key to decrypt
+     * @return Cipher the RSA-OAEP cipher of this thread initialised with the key
+     * @throws InvalidKeyException if the key is not an RSA key
+     */
+    static Cipher rsaCipher(int mode, Key key) throws InvalidKeyException {
+        Cipher cipher = RSA_CIPHERS.get();
+        cipher.init(mode, key);
+        return cipher;
+    }
+
+    private static Signature newSignature(KeyType keyType) {
+        try {
+            return Signature.getInstance(keyType.getSignatureAlgorithm());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Signature " + keyType.getSignatureAlgorithm() + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.javachain.util;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * SHA-256 applied twice ({@code SHA-256(SHA-256(data))}), as used by Bitcoin for block and transaction ids.
+ * It protects against length extension at the cost of one more compression per hash.
+ */
+public class DoubleSha256HashFunction implements HashFunction {
+
+    public static final String NAME = "sha256d";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public MessageDigest newMessageDigest() {
+        return new DoubleSha256Digest();
+    }
+
+    @Override
+    public int getDigestLength() {
+        return DoubleSha256Digest.DIGEST_LENGTH;
+    }
+
+    /**
+     * Streams the data into a SHA-256 engine and hashes its digest once more when finished.
+     */
+    static final class DoubleSha256Digest extends MessageDigest implements Cloneable {
+
+        private static final int DIGEST_LENGTH = 32;
+
+        private MessageDigest sha256 = JdkDigests.newMessageDigest("SHA-256");
+
+        DoubleSha256Digest() {
+            super("SHA-256d");
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return DIGEST_LENGTH;
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            sha256.update(input);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int len) {
+            sha256.update(input, offset, len);
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            return sha256.digest(sha256.digest());
+        }
+
+        @Override
+        protected int engineDigest(byte[] buf, int offset, int len) throws DigestException {
+            if (len < DIGEST_LENGTH) {
+                throw new DigestException("Output buffer too small, " + DIGEST_LENGTH + " bytes needed");
+            }
+            sha256.digest(buf, offset, DIGEST_LENGTH);
+            sha256.update(buf, offset, DIGEST_LENGTH);
+            return sha256.digest(buf, offset, DIGEST_LENGTH);
+        }
+
+        @Override
+        protected void engineReset() {
+            sha256.reset();
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            DoubleSha256Digest copy = (DoubleSha256Digest) super.clone();
+            copy.sha256 = (MessageDigest) sha256.clone();
+            return copy;
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package com.javachain.util;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * The purpose of encoding is to transform data so that it can be properly (and safely)
@@ -21,47 +20,160 @@ import java.nio.charset.StandardCharsets;
 @Component
 public class EncodingUtility {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(EncodingUtility.class);
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
+    /**
+     * Value of every ASCII hex digit (upper and lower case), -1 for all other characters.
+     */
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    /**
+     * Encodes the bytes as lower case hex, e.g. {@code {11, 22, 33}} as {@code "0b1621"}.
+     *
+     * @param bytes byte[]
+     * @return String
+     */
     public String bytesToHex(byte[] bytes) {
-        StringBuilder hexString = new StringBuilder();
-        for (byte byt : bytes) {
-            hexString.append(Integer.toString((byt & 0xff) + 0x100, 16).substring(1));
+        char[] hex = new char[2 * bytes.length];
+        encodeHex(bytes, 0, bytes.length, hex, 0);
+        return new String(hex);
+    }
+
+    /**
+     * Encodes {@code length} bytes of {@code src} as lower case hex into {@code dst}, without allocating.
+     *
+     * @param src       byte[]
+     * @param srcOffset int
+     * @param length    int number of bytes
+     * @param dst       char[] needs room for {@code 2 * length} characters
+     * @param dstOffset int
+     */
+    public void encodeHex(byte[] src, int srcOffset, int length, char[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++) {
+            int value = src[srcOffset + i] & 0xff;
+            dst[dstOffset++] = HEX_DIGITS[value >>> 4];
+            dst[dstOffset++] = HEX_DIGITS[value & 0x0f];
         }
-        return hexString.toString();
     }
 
-    public String bytesToHexJ5(byte[] hash) {
-        LOGGER.debug("Running unoptimized bytes to hex method.");
-        StringBuffer hexString = new StringBuffer();
-        for (int i = 0; i < hash.length; i++) {
-            String hex = Integer.toHexString(0xff & hash[i]);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+    /**
+     * Encodes the remaining bytes of the buffer as lower case hex into {@code dst}, without allocating.
+     * The buffer's position is moved to its limit.
+     *
+     * @param src       ByteBuffer
+     * @param dst       char[] needs room for {@code 2 * src.remaining()} characters
+     * @param dstOffset int
+     * @return int number of characters written
+     */
+    public int encodeHex(ByteBuffer src, char[] dst, int dstOffset) {
+        int length = src.remaining();
+        for (int i = 0; i < length; i++) {
+            int value = src.get() & 0xff;
+            dst[dstOffset++] = HEX_DIGITS[value >>> 4];
+            dst[dstOffset++] = HEX_DIGITS[value & 0x0f];
         }
-        return hexString.toString();
+        return 2 * length;
     }
 
-    public String bytesToHexJ11(byte[] hash) {
-        LOGGER.debug("Running optimized bytes to hex method.");
-        StringBuilder hexString = new StringBuilder();
-        for (byte aHash : hash) {
-            String hex = Integer.toHexString(0xff & aHash);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+    /**
+     * Decodes hex (upper or lower case) of any length, an odd number of digits is read as if it had a leading zero.
+     *
+     * @param hex CharSequence
+     * @return byte[]
+     * @throws IllegalArgumentException if a character is not a hex digit
+     */
+    public byte[] hexToBytes(CharSequence hex) {
+        byte[] bytes = new byte[(hex.length() + 1) / 2];
+        decodeHex(hex, 0, hex.length(), bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Decodes {@code length} hex digits of {@code src} into {@code dst}, without allocating.
+     * An odd number of digits is read as if it had a leading zero.
+     *
+     * @param src       CharSequence
+     * @param srcOffset int
+     * @param length    int number of hex digits
+     * @param dst       byte[] needs room for {@code (length + 1) / 2} bytes
+     * @param dstOffset int
+     * @return int number of bytes written
+     * @throws IllegalArgumentException if a character is not a hex digit
+     */
+    public int decodeHex(CharSequence src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        int position = srcOffset;
+        int end = srcOffset + length;
+        int written = 0;
+        if ((length & 1) != 0) {
+            dst[dstOffset + written++] = (byte) hexValue(src, position++);
+        }
+        while (position < end) {
+            dst[dstOffset + written++] = (byte) (hexValue(src, position) << 4 | hexValue(src, position + 1));
+            position += 2;
         }
-        return hexString.toString();
+        return written;
+    }
+
+    /**
+     * Decodes the hex digits (an even number) into the buffer, without allocating.
+     *
+     * @param src CharSequence
+     * @param dst ByteBuffer needs {@code src.length() / 2} bytes remaining
+     * @throws IllegalArgumentException if a character is not a hex digit or the number of digits is odd
+     */
+    public void decodeHex(CharSequence src, ByteBuffer dst) {
+        if ((src.length() & 1) != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits: " + src.length());
+        }
+        for (int position = 0; position < src.length(); position += 2) {
+            dst.put((byte) (hexValue(src, position) << 4 | hexValue(src, position + 1)));
+        }
+    }
+
+    private static int hexValue(CharSequence src, int position) {
+        char c = src.charAt(position);
+        int value = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid hex digit '" + c + "' at " + position);
+        }
+        return value;
+    }
+
+    /**
+     * @deprecated same as {@link #bytesToHex(byte[])}
+     */
+    @Deprecated
+    public String bytesToHexJ5(byte[] hash) {
+        return bytesToHex(hash);
+    }
+
+    /**
+     * @deprecated same as {@link #bytesToHex(byte[])}
+     */
+    @Deprecated
+    public String bytesToHexJ11(byte[] hash) {
+        return bytesToHex(hash);
     }
 
+    /**
+     * Decodes the hex (of any length) and reads the bytes as UTF-8.
+     *
+     * @param hexString String
+     * @return String
+     */
     public String hexToString(String hexString) {
-        int it = Integer.parseInt(hexString, 16);
-        BigInteger bigInt = BigInteger.valueOf(it);
-        byte[] bytearray = (bigInt.toByteArray());
-        return new String(bytearray, StandardCharsets.UTF_8);
+        return new String(hexToBytes(hexString), StandardCharsets.UTF_8);
     }
 
 }
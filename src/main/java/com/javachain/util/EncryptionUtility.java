@@ -3,6 +3,7 @@ package com.javachain.util;
 import com.javachain.dto.Wallet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.BadPaddingException;
@@ -11,11 +12,11 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.util.Base64;
-import java.util.Objects;
 
 /**
  * The purpose of encryption is to transform data in order to keep it secret from others,
@@ -41,6 +42,12 @@ import java.util.Objects;
  * U2 decrypts it using U2's PRIVATE key
  * U2 decrypts it again using U1's PUBLIC key
  * U2 is able to see the transaction details.
+ * <p>
+ * Wallet keys are RSA-2048 by default, {@code javachain.wallet.key-type} selects elliptic curve keys instead
+ * (see {@link KeyType}). Signing and verification pick the signature algorithm from the type of the key.
+ * <p>
+ * Signature and cipher engines are reused per thread, verifiers stay initialised for recently used public keys.
+ * The {@code byte[]} methods skip the Base64 round trip of the {@code String} ones.
  **/
 @Service
 public class EncryptionUtility {
@@ -51,33 +58,103 @@ public class EncryptionUtility {
     public static final String KEY_ALGORITHM = "RSA";
     public static final String CIPHER = "RSA/ECB/OAEPWITHSHA-256ANDMGF1PADDING";
 
+    private KeyType keyType = KeyType.RSA;
+
+    /**
+     * Sets the type of the key pairs made by {@link #generateKeyPair()}.
+     *
+     * @param keyType String e.g. {@code rsa}, {@code ec-p256} or {@code ed25519}
+     */
+    @Value("${javachain.wallet.key-type:rsa}")
+    public void setKeyType(String keyType) {
+        KeyType resolved = KeyType.forName(keyType);
+        if (!resolved.isSupported()) {
+            throw new IllegalArgumentException("Key type " + keyType + " is not supported by this JDK");
+        }
+        this.keyType = resolved;
+    }
+
+    public KeyType getKeyType() {
+        return keyType;
+    }
+
     public String sign(String message, PrivateKey privateKey) {
-        Signature privateSignature;//hash the data (SHA256) and encrypt it (RSA)
+        return sign(message.getBytes(StandardCharsets.UTF_8), privateKey);
+    }
+
+    /**
+     * Signs the message (e.g. the canonical encoding of a transaction).
+     *
+     * @param message    byte[]
+     * @param privateKey PrivateKey
+     * @return String Base64 encoded signature
+     */
+    public String sign(byte[] message, PrivateKey privateKey) {
+        return Base64.getEncoder().encodeToString(signBytes(message, privateKey));
+    }
+
+    /**
+     * Signs the message with the signature engine of the current thread.
+     *
+     * @param message    byte[]
+     * @param privateKey PrivateKey
+     * @return byte[] the signature, empty if the message can't be signed
+     */
+    public byte[] signBytes(byte[] message, PrivateKey privateKey) {
         byte[] signature = new byte[0];
         try {
-            privateSignature = Signature.getInstance(SHA_256_WITH_RSA);
-            privateSignature.initSign(privateKey);
-            privateSignature.update(message.getBytes(StandardCharsets.UTF_8));
+            Signature privateSignature = CryptoEngines.signer(privateKey);//hash the data (SHA256) and encrypt it (RSA)
+            privateSignature.update(message);
 
             signature = privateSignature.sign();
-        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
+        } catch (InvalidKeyException | SignatureException e) {
             LOGGER.error("Can't sign the message {}", e.getMessage(), e);
         }
-        return Base64.getEncoder().encodeToString(signature);
+        return signature;
     }
 
     public boolean verifySignature(String signer, String signature, PublicKey publicKey) throws SignatureException {
-        Signature publicSignature = null;//hash the data (SHA256) and encrypt it (RSA)
-        byte[] signatureBytes = new byte[0];
+        return verifySignature(signer.getBytes(StandardCharsets.UTF_8), signature, publicKey);
+    }
+
+    /**
+     * Verifies the Base64 encoded signature of the message.
+     *
+     * @param message   byte[]
+     * @param signature String Base64 encoded
+     * @param publicKey PublicKey
+     * @return boolean
+     * @throws SignatureException if the signature can't be processed
+     */
+    public boolean verifySignature(byte[] message, String signature, PublicKey publicKey) throws SignatureException {
+        return verifySignature(message, Base64.getDecoder().decode(signature), publicKey);
+    }
+
+    /**
+     * Verifies the signature of the message. The engine of the current thread stays initialised with the public key,
+     * so verifying more messages of the same signer skips the key setup.
+     *
+     * @param message   byte[]
+     * @param signature byte[]
+     * @param publicKey PublicKey
+     * @return boolean
+     * @throws SignatureException if the signature can't be processed
+     */
+    public boolean verifySignature(byte[] message, byte[] signature, PublicKey publicKey) throws SignatureException {
+        Signature publicSignature;
         try {
-            publicSignature = Signature.getInstance(SHA_256_WITH_RSA);
-            publicSignature.initVerify(publicKey);
-            publicSignature.update(signer.getBytes(StandardCharsets.UTF_8));
-            signatureBytes = Base64.getDecoder().decode(signature);
-        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
+            publicSignature = CryptoEngines.verifier(publicKey);
+        } catch (InvalidKeyException e) {
             LOGGER.error("Can't verify signature: {}", e.getMessage(), e);
+            throw new SignatureException("Can't verify with the key", e);
+        }
+        try {
+            publicSignature.update(message);
+            return publicSignature.verify(signature);
+        } catch (SignatureException | RuntimeException e) {
+            CryptoEngines.discardVerifier(publicKey);
+            throw e;
         }
-        return Objects.requireNonNull(publicSignature).verify(signatureBytes);
     }
 
     /**
@@ -86,27 +163,66 @@ public class EncryptionUtility {
      * You could use an even larger key size, but that would make the process rather slow - RSA isn't
      * well suited for encrypting large data sizes. The usual approach
      * would be to use a symmetric cipher like AES or Triple-DES, and then to use RSA just to encrypt the AES/Triple-DES key.
+     *
+     * @see #encrypt(InputStream, OutputStream, PublicKey)
      */
     public String encrypt(String plainText, PublicKey publicKey)
             throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException,
             BadPaddingException, IllegalBlockSizeException {
-        Cipher encryptCipher = Cipher.getInstance(CIPHER);
-        encryptCipher.init(Cipher.ENCRYPT_MODE, publicKey);
-
-        byte[] cipherText = encryptCipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+        byte[] cipherText = encrypt(plainText.getBytes(StandardCharsets.UTF_8), publicKey);
 
         return Base64.getEncoder().encodeToString(cipherText);
     }
 
+    public byte[] encrypt(byte[] plainText, PublicKey publicKey)
+            throws InvalidKeyException, BadPaddingException, IllegalBlockSizeException {
+        return CryptoEngines.rsaCipher(Cipher.ENCRYPT_MODE, publicKey).doFinal(plainText);
+    }
+
     public String decrypt(String cipherText, PrivateKey privateKey)
             throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException,
             BadPaddingException, IllegalBlockSizeException {
         byte[] bytes = Base64.getDecoder().decode(cipherText);
 
-        Cipher decriptCipher = Cipher.getInstance(CIPHER);
-        decriptCipher.init(Cipher.DECRYPT_MODE, privateKey);
+        return new String(decrypt(bytes, privateKey), StandardCharsets.UTF_8);
+    }
 
-        return new String(decriptCipher.doFinal(bytes), StandardCharsets.UTF_8);
+    public byte[] decrypt(byte[] cipherText, PrivateKey privateKey)
+            throws InvalidKeyException, BadPaddingException, IllegalBlockSizeException {
+        return CryptoEngines.rsaCipher(Cipher.DECRYPT_MODE, privateKey).doFinal(cipherText);
+    }
+
+    /**
+     * Encrypts a stream of any size for the owner of the RSA public key (e.g. a wallet export or a chain snapshot):
+     * the data is encrypted with AES-GCM under a random key and only that key is encrypted with RSA-OAEP.
+     * The data is processed in segments, so memory use doesn't depend on its size. The streams are not closed.
+     * A file can be used through {@link java.nio.channels.Channels#newInputStream} / {@code newOutputStream}.
+     *
+     * @param in        InputStream the plain data
+     * @param out       OutputStream receives the envelope
+     * @param publicKey PublicKey RSA key of the recipient
+     * @throws IOException              if a stream fails
+     * @throws GeneralSecurityException if the key can't be used
+     */
+    public void encrypt(InputStream in, OutputStream out, PublicKey publicKey)
+            throws IOException, GeneralSecurityException {
+        EnvelopeCipher.encrypt(in, out, publicKey);
+    }
+
+    /**
+     * Decrypts an envelope written by {@link #encrypt(InputStream, OutputStream, PublicKey)}.
+     * Only authenticated data is written out, a modified or truncated envelope fails with
+     * {@link javax.crypto.AEADBadTagException} (the segments before it may have been written already).
+     *
+     * @param in         InputStream the envelope
+     * @param out        OutputStream receives the plain data
+     * @param privateKey PrivateKey RSA key of the recipient
+     * @throws IOException              if a stream fails or the data is not an envelope
+     * @throws GeneralSecurityException if the key is wrong or the envelope was modified
+     */
+    public void decrypt(InputStream in, OutputStream out, PrivateKey privateKey)
+            throws IOException, GeneralSecurityException {
+        EnvelopeCipher.decrypt(in, out, privateKey);
     }
 
     public String generateHexStringKey(KeyPair keyPair, boolean getPublic) {
@@ -124,9 +240,11 @@ public class EncryptionUtility {
 
     //=============================================================================
     public KeyPair generateKeyPair() throws NoSuchAlgorithmException {
-        KeyPairGenerator generator = KeyPairGenerator.getInstance(KEY_ALGORITHM);
-        generator.initialize(2048, new SecureRandom());
-        return generator.generateKeyPair();
+        return generateKeyPair(keyType);
+    }
+
+    public KeyPair generateKeyPair(KeyType keyType) throws NoSuchAlgorithmException {
+        return keyType.newKeyPairGenerator().generateKeyPair();
     }
 
     public KeyPair getKeyPairFromKeyStore() throws KeyStoreException, CertificateException,
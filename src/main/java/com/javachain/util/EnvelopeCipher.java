@@ -0,0 +1,192 @@
+package com.javachain.util;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Hybrid encryption of streams of any size: the data is encrypted with AES-256-GCM under a random data key,
+ * and only that key is encrypted with RSA-OAEP for the recipient.
+ * <p>
+ * The data is cut into segments of {@value #SEGMENT_SIZE} bytes, each encrypted and authenticated on its own, so
+ * neither side holds more than a segment in memory and decryption only writes out authenticated data.
+ * The nonce of a segment is a random prefix followed by the segment number, and the last segment is flagged
+ * in its associated data, so segments can't be reordered, dropped or cut off without failing authentication.
+ * <p>
+ * Layout (big endian):
+ *  <blockquote><pre>
+ *   int magic, byte version, int segment size,
+ *   short wrapped key length, wrapped key, 8 byte nonce prefix,
+ *   segments: byte last (0|1), int length, ciphertext with 16 byte tag
+ *  </pre></blockquote><p>
+ */
+final class EnvelopeCipher {
+
+    static final int MAGIC = 0x4a43454e;
+
+    static final byte VERSION = 1;
+
+    static final int SEGMENT_SIZE = 64 * 1024;
+
+    private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String DATA_CIPHER = "AES/GCM/NoPadding";
+
+    private static final int DATA_KEY_LENGTH = 32;
+
+    private static final int NONCE_PREFIX_LENGTH = 8;
+
+    private static final int TAG_LENGTH = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private EnvelopeCipher() {
+    }
+
+    static void encrypt(InputStream in, OutputStream out, PublicKey publicKey)
+            throws IOException, GeneralSecurityException {
+        byte[] dataKey = new byte[DATA_KEY_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        RANDOM.nextBytes(dataKey);
+        RANDOM.nextBytes(noncePrefix);
+        try {
+            byte[] wrappedKey = CryptoEngines.rsaCipher(Cipher.ENCRYPT_MODE, publicKey).doFinal(dataKey);
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeByte(VERSION);
+            data.writeInt(SEGMENT_SIZE);
+            data.writeShort(wrappedKey.length);
+            data.write(wrappedKey);
+            data.write(noncePrefix);
+
+            Cipher cipher = newDataCipher();
+            SecretKeySpec key = new SecretKeySpec(dataKey, "AES");
+            byte[] segment = new byte[SEGMENT_SIZE];
+            byte[] next = new byte[SEGMENT_SIZE];
+            byte[] cipherText = new byte[SEGMENT_SIZE + TAG_LENGTH];
+            int length = readSegment(in, segment);
+            long index = 0;
+            while (true) {
+                // a segment is the last one when nothing follows it, so read one ahead
+                int nextLength = length < SEGMENT_SIZE ? 0 : readSegment(in, next);
+                boolean last = nextLength == 0;
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(8 * TAG_LENGTH, nonce(noncePrefix, index++)));
+                cipher.updateAAD(new byte[]{(byte) (last ? 1 : 0)});
+                int cipherLength = cipher.doFinal(segment, 0, length, cipherText, 0);
+                data.writeByte(last ? 1 : 0);
+                data.writeInt(cipherLength);
+                data.write(cipherText, 0, cipherLength);
+                if (last) {
+                    break;
+                }
+                byte[] swap = segment;
+                segment = next;
+                next = swap;
+                length = nextLength;
+            }
+            data.flush();
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+    }
+
+    static void decrypt(InputStream in, OutputStream out, PrivateKey privateKey)
+            throws IOException, GeneralSecurityException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not an encrypted envelope");
+        }
+        byte version = data.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported envelope version " + version);
+        }
+        int segmentSize = data.readInt();
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IOException("Invalid envelope segment size " + segmentSize);
+        }
+        byte[] wrappedKey = new byte[data.readUnsignedShort()];
+        data.readFully(wrappedKey);
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        data.readFully(noncePrefix);
+
+        byte[] dataKey = CryptoEngines.rsaCipher(Cipher.DECRYPT_MODE, privateKey).doFinal(wrappedKey);
+        try {
+            if (dataKey.length != DATA_KEY_LENGTH) {
+                throw new AEADBadTagException("Invalid envelope data key");
+            }
+            Cipher cipher = newDataCipher();
+            SecretKeySpec key = new SecretKeySpec(dataKey, "AES");
+            byte[] cipherText = new byte[segmentSize + TAG_LENGTH];
+            byte[] plainText = new byte[segmentSize + TAG_LENGTH];
+            long index = 0;
+            boolean last = false;
+            while (!last) {
+                int flag = data.read();
+                if (flag == -1) {
+                    throw new AEADBadTagException("Envelope is truncated");
+                }
+                last = flag == 1;
+                int cipherLength = data.readInt();
+                if (cipherLength < TAG_LENGTH || cipherLength > cipherText.length) {
+                    throw new IOException("Invalid envelope segment length " + cipherLength);
+                }
+                data.readFully(cipherText, 0, cipherLength);
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(8 * TAG_LENGTH, nonce(noncePrefix, index++)));
+                cipher.updateAAD(new byte[]{(byte) flag});
+                int plainLength = cipher.doFinal(cipherText, 0, cipherLength, plainText, 0);
+                out.write(plainText, 0, plainLength);
+            }
+            out.flush();
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+    }
+
+    private static Cipher newDataCipher() {
+        try {
+            return Cipher.getInstance(DATA_CIPHER);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException("Cipher " + DATA_CIPHER + " is not available", e);
+        }
+    }
+
+    private static byte[] nonce(byte[] noncePrefix, long index) {
+        if (index > 0xffffffffL) {
+            throw new IllegalStateException("Envelope has too many segments");
+        }
+        byte[] nonce = Arrays.copyOf(noncePrefix, NONCE_PREFIX_LENGTH + 4);
+        nonce[NONCE_PREFIX_LENGTH] = (byte) (index >>> 24);
+        nonce[NONCE_PREFIX_LENGTH + 1] = (byte) (index >>> 16);
+        nonce[NONCE_PREFIX_LENGTH + 2] = (byte) (index >>> 8);
+        nonce[NONCE_PREFIX_LENGTH + 3] = (byte) index;
+        return nonce;
+    }
+
+    /**
+     * Reads until the buffer is full or the stream ends.
+     */
+    private static int readSegment(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,63 @@
+package com.javachain.util;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * The {@code HashFunction} interface is the hash function of a chain: it is used for the proof-of-work,
+ * so it also decides the block hashes (block ids).
+ * <p>
+ * A hash function only has to hand out {@link MessageDigest} engines. Mining clones the engine to reuse the
+ * midstate of long messages, so the engines have to be {@link Cloneable}.
+ * Implementations are found with the {@link ServiceLoader} (listed in {@code META-INF/services/com.javachain.util.HashFunction}),
+ * so a faster one can be added without touching the services. The chain picks one by name with
+ * {@code javachain.chain.hash-function}.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   HashFunction hashFunction = HashFunction.forName("sha3-256");
+ *   byte[] digest = hashFunction.hash(data);
+ *  </pre></blockquote><p>
+ */
+public interface HashFunction {
+
+    /**
+     * @return String the name used in the configuration, e.g. {@code sha256}
+     */
+    String getName();
+
+    /**
+     * Creates a new engine, engines are not thread safe.
+     *
+     * @return MessageDigest
+     */
+    MessageDigest newMessageDigest();
+
+    default int getDigestLength() {
+        return newMessageDigest().getDigestLength();
+    }
+
+    default byte[] hash(byte[] data) {
+        return newMessageDigest().digest(data);
+    }
+
+    /**
+     * Finds the hash function with the given name (case insensitive).
+     *
+     * @param name String
+     * @return HashFunction
+     * @throws IllegalArgumentException if there is no such hash function
+     */
+    static HashFunction forName(String name) {
+        List<String> names = new ArrayList<>();
+        for (HashFunction hashFunction : ServiceLoader.load(HashFunction.class, HashFunction.class.getClassLoader())) {
+            if (hashFunction.getName().equalsIgnoreCase(name)) {
+                return hashFunction;
+            }
+            names.add(hashFunction.getName());
+        }
+        throw new IllegalArgumentException("Unknown hash function " + name + ", available: " + names);
+    }
+}
@@ -2,12 +2,13 @@ package com.javachain.util;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Objects;
 
 /**
  * Cryptographic Hashing serves the purpose of ensuring integrity, i.e. making it so that if
@@ -27,6 +28,9 @@ import java.util.Objects;
  * If they match it is an unmodified message, sent by the correct person.
  * <p>
  * Examples: sha-3, md5 (now obsolete), etc.
+ * <p>
+ * The hash function of the chain (proof-of-work and block hashes) is configurable with
+ * {@code javachain.chain.hash-function}, see {@link HashFunction}. {@link #sha256(String)} is always SHA-256.
  */
 @Service
 public class HashingUtility {
@@ -35,37 +39,49 @@ public class HashingUtility {
 
     public static final String CRYPTO_HASH_ALGORITHM = "SHA-256";
 
-    private static final MessageDigest MESSAGE_DIGEST;
+    /**
+     * Digests are not thread safe and expensive to look up, so every thread keeps its own instances.
+     * A digest is always left reset ({@code digest()} resets it), so it can be reused by the next call.
+     */
+    private static final ThreadLocal<MessageDigest> MD5 =
+            ThreadLocal.withInitial(() -> JdkDigests.newMessageDigest("MD5"));
 
-    static {
-        MessageDigest md;
-        try {
-            md = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException err) {
-            throw new IllegalStateException();
-        }
-        MESSAGE_DIGEST = md;
-    }
+    private static final ThreadLocal<MessageDigest> SHA_256 =
+            ThreadLocal.withInitial(() -> JdkDigests.newMessageDigest(CRYPTO_HASH_ALGORITHM));
 
     private static final String HEX_CHARS = "0123456789ABCDEF";
     private final EncodingUtility encodingUtility;
 
+    private final HashFunction hashFunction;
+
+    private final ThreadLocal<MessageDigest> chainDigest;
+
     public HashingUtility(EncodingUtility encodingUtility) {
+        this(encodingUtility, new Sha256HashFunction());
+    }
+
+    @Autowired
+    public HashingUtility(EncodingUtility encodingUtility,
+                          @Value("${javachain.chain.hash-function:" + Sha256HashFunction.NAME + "}") String hashFunction) {
+        this(encodingUtility, HashFunction.forName(hashFunction));
+    }
+
+    public HashingUtility(EncodingUtility encodingUtility, HashFunction hashFunction) {
         this.encodingUtility = encodingUtility;
+        this.hashFunction = hashFunction;
+        this.chainDigest = ThreadLocal.withInitial(hashFunction::newMessageDigest);
+        LOGGER.info("Using the {} hash function", hashFunction.getName());
+    }
+
+    /**
+     * @return HashFunction the hash function of the chain
+     */
+    public HashFunction getHashFunction() {
+        return hashFunction;
     }
 
     public String getMD5(String source) {
-        byte[] bytes;
-        try {
-            bytes = source.getBytes(StandardCharsets.UTF_8.name());
-        } catch (java.io.UnsupportedEncodingException ue) {
-            throw new IllegalStateException(ue);
-        }
-        byte[] result;
-        synchronized (MESSAGE_DIGEST) {
-            MESSAGE_DIGEST.update(bytes);
-            result = MESSAGE_DIGEST.digest();
-        }
+        byte[] result = MD5.get().digest(source.getBytes(StandardCharsets.UTF_8));
         char[] resChars = new char[32];
         int len = result.length;
         for (int i = 0; i < len; i++) {
@@ -89,17 +105,56 @@ public class HashingUtility {
     }
 
     public byte[] sha256(String data) {
-        MessageDigest messageDigest = null;
-        try {
-            messageDigest = MessageDigest.getInstance(CRYPTO_HASH_ALGORITHM);
-        } catch (NoSuchAlgorithmException e) {
-            LOGGER.error("Can't digest the message. {}", e.getMessage(), e);
-        }
-        return Objects.requireNonNull(messageDigest).digest(data.getBytes(StandardCharsets.UTF_8));
+        return sha256(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] sha256(byte[] data) {
+        return SHA_256.get().digest(data);
+    }
+
+    /**
+     * Hashes the remaining bytes of the buffer with SHA-256, the buffer's position is moved to its limit.
+     *
+     * @param data ByteBuffer
+     * @return byte[]
+     */
+    public byte[] sha256(ByteBuffer data) {
+        MessageDigest messageDigest = SHA_256.get();
+        messageDigest.update(data);
+        return messageDigest.digest();
+    }
+
+    /**
+     * Hashes the data with the hash function of the chain.
+     *
+     * @param data byte[]
+     * @return byte[]
+     */
+    public byte[] hash(byte[] data) {
+        return chainDigest.get().digest(data);
+    }
+
+    /**
+     * Hashes the remaining bytes of the buffer with the hash function of the chain,
+     * the buffer's position is moved to its limit.
+     *
+     * @param data ByteBuffer
+     * @return byte[]
+     */
+    public byte[] hash(ByteBuffer data) {
+        MessageDigest messageDigest = chainDigest.get();
+        messageDigest.update(data);
+        return messageDigest.digest();
     }
 
+    /**
+     * Hashes the message with the hash function of the chain.
+     *
+     * @param message String
+     * @return String hex encoded digest
+     */
     public String hexHash(String message) {
-        return encodingUtility.bytesToHex(sha256(message));
+        return encodingUtility.bytesToHex(hash(message.getBytes(StandardCharsets.UTF_8)));
     }
 
 }
@@ -0,0 +1,18 @@
+package com.javachain.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+final class JdkDigests {
+
+    private JdkDigests() {
+    }
+
+    static MessageDigest newMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Digest " + algorithm + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.javachain.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The {@code KeyPairPool} class keeps key pairs generated ahead of time, so creating a wallet doesn't wait for
+ * RSA key generation (tens to hundreds of milliseconds for a 2048 bit key).
+ * <p>
+ * A low priority daemon thread keeps at most {@code capacity} pairs of the configured key type
+ * ({@link EncryptionUtility#getKeyType()}) in the pool. When the pool is empty a pair is generated on the calling
+ * thread, a capacity of 0 disables the pool.
+ * <p>
+ * The number of ready pairs is published as {@code javachain.wallet.key-pool.size}, pooled and generated pairs
+ * are counted in {@code javachain.wallet.key-pool.takes} (tagged {@code result=pooled|generated}).
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   KeyPair keyPair = keyPairPool.take();
+ *  </pre></blockquote><p>
+ */
+@Component
+public class KeyPairPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyPairPool.class);
+
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    final EncryptionUtility encryptionUtility;
+
+    private final int capacity;
+
+    private final BlockingQueue<KeyPair> keyPairs;
+
+    private final Counter pooled;
+
+    private final Counter generated;
+
+    private Thread fillerThread;
+
+    public KeyPairPool(EncryptionUtility encryptionUtility, int capacity) {
+        this(encryptionUtility, capacity, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public KeyPairPool(EncryptionUtility encryptionUtility,
+                       @Value("${javachain.wallet.key-pool.size:16}") int capacity,
+                       MeterRegistry meterRegistry) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity of the key pair pool can't be negative: " + capacity);
+        }
+        this.encryptionUtility = encryptionUtility;
+        this.capacity = capacity;
+        keyPairs = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        pooled = Counter.builder("javachain.wallet.key-pool.takes")
+                .tag("result", "pooled")
+                .description("Key pairs taken from the pool")
+                .register(meterRegistry);
+        generated = Counter.builder("javachain.wallet.key-pool.takes")
+                .tag("result", "generated")
+                .description("Key pairs generated on demand because the pool was empty")
+                .register(meterRegistry);
+        Gauge.builder("javachain.wallet.key-pool.size", keyPairs, BlockingQueue::size)
+                .description("Pre-generated key pairs ready in the pool")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts filling the pool in the background.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (capacity == 0 || fillerThread != null) {
+            return;
+        }
+        fillerThread = new Thread(this::fill, "javachain-key-pool");
+        fillerThread.setDaemon(true);
+        fillerThread.setPriority(Thread.MIN_PRIORITY);
+        fillerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = fillerThread;
+            fillerThread = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return KeyPair a pre-generated pair of the configured key type, or a new one if the pool is empty
+     * @throws NoSuchAlgorithmException if the JDK doesn't support the key type
+     */
+    public KeyPair take() throws NoSuchAlgorithmException {
+        KeyType keyType = encryptionUtility.getKeyType();
+        KeyPair keyPair;
+        while ((keyPair = keyPairs.poll()) != null) {
+            // pairs made before the key type was changed are dropped
+            if (KeyType.forKey(keyPair.getPublic()) == keyType) {
+                pooled.increment();
+                return keyPair;
+            }
+        }
+        generated.increment();
+        return encryptionUtility.generateKeyPair(keyType);
+    }
+
+    public int size() {
+        return keyPairs.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double getPooled() {
+        return pooled.count();
+    }
+
+    public double getGenerated() {
+        return generated.count();
+    }
+
+    private void fill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                keyPairs.put(encryptionUtility.generateKeyPair());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (NoSuchAlgorithmException | RuntimeException e) {
+            LOGGER.error("Can't pre-generate key pairs, wallets get theirs on demand", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.javachain.util;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.Key;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.util.Locale;
+
+/**
+ * The {@code KeyType} enum lists the key pairs a wallet can have and the signature algorithm used with each of them.
+ * <p>
+ * Compared to RSA-2048 (294 byte public key, 256 byte signature):
+ * <ul>
+ *     <li>{@link #EC_P256} ECDSA on the NIST P-256 curve, 91 byte public key, about 72 byte signature,</li>
+ *     <li>{@link #ED25519} EdDSA on Curve25519, 44 byte public key, 64 byte signature
+ *     (only in JDK 15 and newer, see {@link #isSupported()}).</li>
+ * </ul>
+ * Elliptic curve keys are generated in well under a millisecond and sign much faster than RSA,
+ * RSA verifies a little faster. Only RSA keys can {@link EncryptionUtility#encrypt encrypt}.
+ */
+public enum KeyType {
+
+    RSA("rsa", "RSA", "SHA256withRSA", new RSAKeyGenParameterSpec(2048, RSAKeyGenParameterSpec.F4)),
+    EC_P256("ec-p256", "EC", "SHA256withECDSA", new ECGenParameterSpec("secp256r1")),
+    ED25519("ed25519", "Ed25519", "Ed25519", null);
+
+    private final String name;
+    private final String algorithm;
+    private final String signatureAlgorithm;
+    private final AlgorithmParameterSpec parameters;
+
+    KeyType(String name, String algorithm, String signatureAlgorithm, AlgorithmParameterSpec parameters) {
+        this.name = name;
+        this.algorithm = algorithm;
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return String the name used in the configuration, e.g. {@code ec-p256}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return String the JCA key algorithm
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return String the JCA signature algorithm used with keys of this type
+     */
+    public String getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    /**
+     * @return boolean true if the running JDK can generate keys of this type
+     */
+    public boolean isSupported() {
+        try {
+            KeyPairGenerator.getInstance(algorithm);
+            return true;
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+
+    public KeyPairGenerator newKeyPairGenerator() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        if (parameters != null) {
+            try {
+                generator.initialize(parameters, new SecureRandom());
+            } catch (InvalidAlgorithmParameterException e) {
+                throw new IllegalStateException("Can't initialize " + name + " key generator", e);
+            }
+        }
+        return generator;
+    }
+
+    /**
+     * @param name String the name of the key type (case insensitive), e.g. {@code rsa}, {@code ec-p256}, {@code ed25519}
+     * @return KeyType
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static KeyType forName(String name) {
+        String normalized = name.trim().toLowerCase(Locale.ROOT);
+        for (KeyType keyType : values()) {
+            if (keyType.name.equals(normalized)) {
+                return keyType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown key type " + name);
+    }
+
+    /**
+     * @param key Key public or private
+     * @return KeyType the type of the key
+     * @throws IllegalArgumentException for keys of other algorithms
+     */
+    public static KeyType forKey(Key key) {
+        switch (key.getAlgorithm()) {
+            case "RSA":
+                return RSA;
+            case "EC":
+                return EC_P256;
+            case "EdDSA":
+            case "Ed25519":
+                return ED25519;
+            default:
+                throw new IllegalArgumentException("Unsupported key algorithm " + key.getAlgorithm());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.javachain.util;
+
+import com.javachain.dto.MerkleProof;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code MerkleTree} class is a binary hash tree over the transaction hashes of a block.
+ * <p>
+ * Every level is built by hashing the concatenation of pairs of hashes of the level below
+ * (the last hash is paired with itself when the count is odd), until one hash, the root, is left.
+ * Repeating the last hashes of an odd level gives the same root, so the root alone doesn't fix the leaves:
+ * blocks with repeated transactions are rejected.
+ * The root goes into the block header, so the header commits to all transactions, and a single transaction
+ * can be shown to be in the block with a {@link MerkleProof} of log2(n) hashes.
+ * No transactions give a root of zeros.
+ * <p>
+ * All levels are kept, so proofs can be produced without hashing again. A tree is immutable.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   MerkleTree tree = MerkleTree.build(hashFunction, transactionHashes);
+ *   MerkleProof proof = tree.proof(2);
+ *   boolean included = MerkleTree.verify(hashFunction, transactionHashes.get(2), proof, tree.getRoot());
+ *  </pre></blockquote><p>
+ */
+public final class MerkleTree {
+
+    private final List<List<byte[]>> levels;
+
+    private final byte[] root;
+
+    private MerkleTree(List<List<byte[]>> levels, byte[] root) {
+        this.levels = levels;
+        this.root = root;
+    }
+
+    /**
+     * Builds the tree.
+     *
+     * @param hashFunction HashFunction
+     * @param leaves       List of the transaction hashes, in block order
+     * @return MerkleTree
+     */
+    public static MerkleTree build(HashFunction hashFunction, List<byte[]> leaves) {
+        int hashLength = hashFunction.getDigestLength();
+        if (leaves.isEmpty()) {
+            return new MerkleTree(Collections.emptyList(), new byte[hashLength]);
+        }
+        MessageDigest messageDigest = hashFunction.newMessageDigest();
+        List<List<byte[]>> levels = new ArrayList<>();
+        List<byte[]> level = new ArrayList<>(leaves.size());
+        for (byte[] leaf : leaves) {
+            level.add(leaf.clone());
+        }
+        levels.add(level);
+        while (level.size() > 1) {
+            List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                byte[] left = level.get(i);
+                byte[] right = i + 1 < level.size() ? level.get(i + 1) : left;
+                parents.add(hashPair(messageDigest, left, right));
+            }
+            levels.add(parents);
+            level = parents;
+        }
+        return new MerkleTree(levels, level.get(0));
+    }
+
+    /**
+     * @return byte[] the root
+     */
+    public byte[] getRoot() {
+        return root.clone();
+    }
+
+    public int getLeafCount() {
+        return levels.isEmpty() ? 0 : levels.get(0).size();
+    }
+
+    /**
+     * Creates the proof for the leaf, only from the cached levels.
+     *
+     * @param index int position of the transaction in the block
+     * @return MerkleProof
+     */
+    public MerkleProof proof(int index) {
+        if (index < 0 || index >= getLeafCount()) {
+            throw new IndexOutOfBoundsException("No leaf " + index + " in a tree of " + getLeafCount());
+        }
+        List<byte[]> siblings = new ArrayList<>(levels.size() - 1);
+        int position = index;
+        for (List<byte[]> level : levels.subList(0, levels.size() - 1)) {
+            int sibling = position ^ 1;
+            siblings.add(level.get(sibling < level.size() ? sibling : position));
+            position >>>= 1;
+        }
+        return new MerkleProof(index, siblings);
+    }
+
+    /**
+     * Checks that the leaf is at the proof's index of a tree with the given root.
+     *
+     * @param hashFunction HashFunction
+     * @param leaf         byte[] hash of the transaction
+     * @param proof        MerkleProof
+     * @param root         byte[] the Merkle root from the block header
+     * @return boolean
+     */
+    public static boolean verify(HashFunction hashFunction, byte[] leaf, MerkleProof proof, byte[] root) {
+        MessageDigest messageDigest = hashFunction.newMessageDigest();
+        byte[] hash = leaf;
+        int position = proof.getIndex();
+        if (position < 0) {
+            return false;
+        }
+        for (byte[] sibling : proof.getSiblings()) {
+            hash = (position & 1) == 0 ? hashPair(messageDigest, hash, sibling) : hashPair(messageDigest, sibling, hash);
+            position >>>= 1;
+        }
+        return position == 0 && MessageDigest.isEqual(hash, root);
+    }
+
+    private static byte[] hashPair(MessageDigest messageDigest, byte[] left, byte[] right) {
+        messageDigest.update(left);
+        messageDigest.update(right);
+        return messageDigest.digest();
+    }
+}
@@ -0,0 +1,162 @@
+package com.javachain.util;
+
+import com.javachain.dto.BlockHeader;
+
+import java.security.MessageDigest;
+
+/**
+ * The {@code ProofOfWorkKernel} computes {@code hash(prefix + nonce)} for many nonces of the same prefix,
+ * with the nonce appended as ASCII decimal digits (the same bytes as {@code (message + nonce).getBytes(UTF_8)}),
+ * or, for block headers ({@link #forHeader(HashFunction, BlockHeader)}), as 8 big-endian bytes.
+ * <p>
+ * The nonce digits are written in place into a reusable buffer and the digest goes into a reusable array,
+ * so no String, byte[] or {@code MessageDigest} lookup is needed per attempt.
+ * <ul>
+ *     <li>Short prefixes (up to two SHA-256 blocks, e.g. block headers) are digested again on every attempt
+ *     with the same engine, which does not allocate at all.</li>
+ *     <li>Longer prefixes are digested only once, every attempt continues from a clone of that midstate
+ *     and compresses just the last block (nonce and padding).</li>
+ * </ul>
+ * The clone is the only allocation per attempt on the long path: {@code MessageDigest} can't load a saved state
+ * into an existing instance, and a hand written compression that could would lose the SHA extensions
+ * (about 3 times slower). The clone is short lived, the young collections it causes take well under a millisecond
+ * and a 2 KB prefix is mined as fast as a header (see {@code HashFunctionBenchmark}).
+ * The hash function is SHA-256 unless another {@link HashFunction} is given. The JDK SHA-256 engine is used
+ * (instead of a hand written compression function) because it runs on the SHA extensions of the CPU where available.
+ * <p>
+ * A kernel is not thread safe, each mining thread uses its own instance.
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   ProofOfWorkKernel kernel = new ProofOfWorkKernel(message.getBytes(StandardCharsets.UTF_8));
+ *   while (!kernel.hasLeadingOnes(nonce, difficulty)) nonce++;
+ *  </pre></blockquote><p>
+ */
+public class ProofOfWorkKernel {
+
+    /**
+     * Prefixes shorter than this are hashed again on every attempt instead of cloning the midstate.
+     */
+    static final int MIDSTATE_THRESHOLD = 128;
+
+    private static final int MAX_NONCE_DIGITS = 19;
+
+    private static final int BINARY_NONCE_LENGTH = 8;
+
+    private final byte[] prefix;
+    private final MessageDigest engine;
+    private final MessageDigest midstate;
+    private final byte[] nonceDigits = new byte[MAX_NONCE_DIGITS];
+    private final byte[] digest;
+    private final boolean binaryNonce;
+
+    public ProofOfWorkKernel(byte[] prefix) {
+        this(new Sha256HashFunction(), prefix);
+    }
+
+    public ProofOfWorkKernel(HashFunction hashFunction, byte[] prefix) {
+        this(hashFunction, prefix, false);
+    }
+
+    private ProofOfWorkKernel(HashFunction hashFunction, byte[] prefix, boolean binaryNonce) {
+        this.prefix = prefix;
+        this.binaryNonce = binaryNonce;
+        this.engine = hashFunction.newMessageDigest();
+        this.digest = new byte[engine.getDigestLength()];
+        if (prefix.length >= MIDSTATE_THRESHOLD) {
+            midstate = hashFunction.newMessageDigest();
+            midstate.update(prefix);
+        } else {
+            midstate = null;
+        }
+    }
+
+    /**
+     * Creates a kernel that hashes the canonical encoding of the header with each nonce
+     * ({@code kernel.hash(n)} equals the hash of {@code header.withNonce(n).encode()}).
+     *
+     * @param hashFunction HashFunction
+     * @param header       BlockHeader, its nonce is ignored
+     * @return ProofOfWorkKernel
+     */
+    public static ProofOfWorkKernel forHeader(HashFunction hashFunction, BlockHeader header) {
+        return new ProofOfWorkKernel(hashFunction, header.encodeWithoutNonce(), true);
+    }
+
+    /**
+     * Hashes {@code prefix + nonce}.
+     *
+     * @param nonce long, not negative
+     * @return byte[] the digest, the array is reused by the next call
+     */
+    public byte[] hash(long nonce) {
+        int digits = binaryNonce ? writeBigEndian(nonce, nonceDigits) : writeDigits(nonce, nonceDigits);
+        try {
+            MessageDigest messageDigest;
+            if (midstate == null) {
+                messageDigest = engine;
+                messageDigest.update(prefix);
+            } else {
+                // one clone per attempt, the midstate can't be restored into a reused digest
+                messageDigest = (MessageDigest) midstate.clone();
+            }
+            messageDigest.update(nonceDigits, MAX_NONCE_DIGITS - digits, digits);
+            messageDigest.digest(digest, 0, digest.length);
+        } catch (CloneNotSupportedException | java.security.DigestException e) {
+            throw new IllegalStateException("Can't digest the nonce " + nonce, e);
+        }
+        return digest;
+    }
+
+    /**
+     * Checks if the hex representation of the digest of {@code prefix + nonce} starts with
+     * {@code difficulty} "1" characters, without building the hex string.
+     *
+     * @param nonce      long
+     * @param difficulty int
+     * @return boolean
+     */
+    public boolean hasLeadingOnes(long nonce, int difficulty) {
+        return hasLeadingOnes(hash(nonce), difficulty);
+    }
+
+    public static boolean hasLeadingOnes(byte[] digest, int difficulty) {
+        if (difficulty > 2 * digest.length) {
+            throw new IllegalArgumentException("Difficulty " + difficulty + " is bigger than the digest");
+        }
+        int fullBytes = difficulty >>> 1;
+        for (int i = 0; i < fullBytes; i++) {
+            if (digest[i] != 0x11) {
+                return false;
+            }
+        }
+        return (difficulty & 1) == 0 || (digest[fullBytes] & 0xF0) == 0x10;
+    }
+
+    /**
+     * Writes the value as 8 big-endian bytes right aligned into the buffer.
+     *
+     * @return int number of bytes written
+     */
+    private static int writeBigEndian(long value, byte[] buffer) {
+        for (int i = 1; i <= BINARY_NONCE_LENGTH; i++) {
+            buffer[buffer.length - i] = (byte) value;
+            value >>>= 8;
+        }
+        return BINARY_NONCE_LENGTH;
+    }
+
+    /**
+     * Writes the decimal digits of the value right aligned into the buffer.
+     *
+     * @return int number of digits written
+     */
+    private static int writeDigits(long value, byte[] buffer) {
+        int position = buffer.length;
+        do {
+            buffer[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return buffer.length - position;
+    }
+}
@@ -0,0 +1,26 @@
+package com.javachain.util;
+
+import java.security.MessageDigest;
+
+/**
+ * SHA-256 from the JDK, the default hash function of the chain.
+ */
+public class Sha256HashFunction implements HashFunction {
+
+    public static final String NAME = "sha256";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public MessageDigest newMessageDigest() {
+        return JdkDigests.newMessageDigest("SHA-256");
+    }
+
+    @Override
+    public int getDigestLength() {
+        return 32;
+    }
+}
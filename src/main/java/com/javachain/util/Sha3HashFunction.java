@@ -0,0 +1,27 @@
+package com.javachain.util;
+
+import java.security.MessageDigest;
+
+/**
+ * SHA3-256 from the JDK. It is not vulnerable to length extension, but it has no CPU support on most machines,
+ * so it is slower than SHA-256.
+ */
+public class Sha3HashFunction implements HashFunction {
+
+    public static final String NAME = "sha3-256";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public MessageDigest newMessageDigest() {
+        return JdkDigests.newMessageDigest("SHA3-256");
+    }
+
+    @Override
+    public int getDigestLength() {
+        return 32;
+    }
+}
@@ -0,0 +1,159 @@
+package com.javachain.util;
+
+import com.javachain.dto.Hash256;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code SignatureCache} class remembers signatures that were already verified successfully,
+ * so validating the same transaction again (every block verification walks the whole chain) skips RSA.
+ * <p>
+ * An entry is the SHA-256 of (transaction id, signature, public key), 32 bytes per signature whatever the key size.
+ * The transaction id has to be computed from the current encoding of the transaction (not taken from its seal),
+ * so a transaction modified after it was verified does not hit the cache.
+ * Failed verifications are not cached. The cache is safe for concurrent use and holds at most {@code maxSize}
+ * entries, the oldest ones are evicted first.
+ * <p>
+ * Hits, misses and evictions are recorded in {@code javachain.signatures.cache.gets} (tagged {@code result=hit|miss}),
+ * {@code javachain.signatures.cache.evictions} and {@code javachain.signatures.cache.size}.
+ */
+@Component
+public class SignatureCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 =
+            ThreadLocal.withInitial(() -> JdkDigests.newMessageDigest(HashingUtility.CRYPTO_HASH_ALGORITHM));
+
+    private final int maxSize;
+
+    private final Map<Hash256, Boolean> verified = new ConcurrentHashMap<>();
+
+    private final Queue<Hash256> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    public SignatureCache(int maxSize) {
+        this(maxSize, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public SignatureCache(@Value("${javachain.signature-cache.max-size:100000}") int maxSize,
+                          MeterRegistry meterRegistry) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size of the signature cache can't be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        hits = Counter.builder("javachain.signatures.cache.gets")
+                .tag("result", "hit")
+                .description("Signature verifications answered by the cache")
+                .register(meterRegistry);
+        misses = Counter.builder("javachain.signatures.cache.gets")
+                .tag("result", "miss")
+                .description("Signature verifications not in the cache")
+                .register(meterRegistry);
+        evictions = Counter.builder("javachain.signatures.cache.evictions")
+                .description("Verified signatures evicted from the cache")
+                .register(meterRegistry);
+        Gauge.builder("javachain.signatures.cache.size", verified, Map::size)
+                .description("Verified signatures in the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param txid      byte[] id of the transaction, computed from its current encoding
+     * @param signature String Base64 encoded
+     * @param publicKey PublicKey
+     * @return boolean true if the signature was verified before, counted as a hit or a miss
+     */
+    public boolean contains(byte[] txid, String signature, PublicKey publicKey) {
+        if (verified.containsKey(key(txid, signature, publicKey))) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * Records a successful verification, evicting the oldest entries over the maximum size.
+     *
+     * @param txid      byte[] id of the transaction, computed from its current encoding
+     * @param signature String Base64 encoded
+     * @param publicKey PublicKey
+     */
+    public void add(byte[] txid, String signature, PublicKey publicKey) {
+        if (maxSize == 0) {
+            return;
+        }
+        Hash256 key = key(txid, signature, publicKey);
+        if (verified.putIfAbsent(key, Boolean.TRUE) == null) {
+            insertionOrder.add(key);
+            while (verified.size() > maxSize) {
+                Hash256 eldest = insertionOrder.poll();
+                if (eldest == null) {
+                    break;
+                }
+                if (verified.remove(eldest) != null) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return verified.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public double getHits() {
+        return hits.count();
+    }
+
+    public double getMisses() {
+        return misses.count();
+    }
+
+    public void clear() {
+        verified.clear();
+        insertionOrder.clear();
+    }
+
+    private static Hash256 key(byte[] txid, String signature, PublicKey publicKey) {
+        MessageDigest digest = SHA_256.get();
+        update(digest, txid);
+        update(digest, signature.getBytes(StandardCharsets.US_ASCII));
+        update(digest, publicKey.getEncoded());
+        return Hash256.of(digest.digest());
+    }
+
+    /**
+     * Length-prefixed, so the parts can't be shifted into each other.
+     */
+    private static void update(MessageDigest digest, byte[] value) {
+        int length = value.length;
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+        digest.update(value);
+    }
+}
@@ -0,0 +1,140 @@
+package com.javachain.util;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * The {@code Target} class represents the proof-of-work target: a block is solved when its 256-bit hash,
+ * read as an unsigned big-endian number, is below the target. The lower the target, the harder the block.
+ * <p>
+ * Blocks store the target in the compact form used by Bitcoin ("bits"): the highest byte is the length of
+ * the number in bytes, the lower three bytes are its most significant bytes, e.g. {@code 0x20010000} is
+ * {@code 0x010000 * 256^(0x20 - 3)} = 2^248 (the first byte of the hash has to be zero).
+ * <p>
+ * For example:
+ *  <blockquote><pre>
+ *   Target target = Target.fromCompact(block.getTarget());
+ *   boolean solved = target.isMetBy(hash);
+ *  </pre></blockquote><p>
+ */
+public final class Target implements Serializable {
+
+    /**
+     * The easiest target allowed, about 2^252 (one hash in 16 solves it).
+     */
+    public static final Target LIMIT = fromCompact(0x200fffff);
+
+    /**
+     * The target of the genesis block, 2^248 (one hash in 256 solves it on average,
+     * the same amount of work as two leading hex "1" characters).
+     */
+    public static final Target INITIAL = fromCompact(0x20010000);
+
+    private static final int HASH_LENGTH = 32;
+
+    private final int compact;
+    private final BigInteger value;
+    private final byte[] bytes;
+
+    private Target(int compact, BigInteger value) {
+        this.compact = compact;
+        this.value = value;
+        this.bytes = toBytes(value);
+    }
+
+    public static Target fromCompact(int compact) {
+        int size = compact >>> 24;
+        if ((compact & 0x00800000) != 0) {
+            throw new IllegalArgumentException("Negative target " + Integer.toHexString(compact));
+        }
+        BigInteger mantissa = BigInteger.valueOf(compact & 0x007fffff);
+        BigInteger value = size <= 3 ? mantissa.shiftRight(8 * (3 - size)) : mantissa.shiftLeft(8 * (size - 3));
+        if (value.bitLength() > 8 * HASH_LENGTH) {
+            throw new IllegalArgumentException("Target " + Integer.toHexString(compact) + " is bigger than 256 bits");
+        }
+        return new Target(compact, value);
+    }
+
+    /**
+     * Creates the target from a number, rounded down to the precision of the compact form.
+     *
+     * @param value BigInteger
+     * @return Target
+     */
+    public static Target fromValue(BigInteger value) {
+        return fromCompact(toCompact(value));
+    }
+
+    private static int toCompact(BigInteger value) {
+        int size = (value.bitLength() + 7) / 8;
+        int mantissa = size <= 3 ? value.intValue() << (8 * (3 - size)) : value.shiftRight(8 * (size - 3)).intValue();
+        if ((mantissa & 0x00800000) != 0) {
+            mantissa >>>= 8;
+            size++;
+        }
+        return mantissa | size << 24;
+    }
+
+    private static byte[] toBytes(BigInteger value) {
+        byte[] magnitude = value.toByteArray();
+        byte[] result = new byte[HASH_LENGTH];
+        int length = Math.min(magnitude.length, HASH_LENGTH);
+        System.arraycopy(magnitude, magnitude.length - length, result, HASH_LENGTH - length, length);
+        return result;
+    }
+
+    /**
+     * Checks if the hash is below the target, without allocating.
+     *
+     * @param hash byte[] 32 byte digest
+     * @return boolean
+     */
+    public boolean isMetBy(byte[] hash) {
+        return Arrays.compareUnsigned(hash, bytes) < 0;
+    }
+
+    /**
+     * Checks if the hex encoded hash (64 characters) is below the target.
+     *
+     * @param hexHash String
+     * @return boolean
+     */
+    public boolean isMetBy(String hexHash) {
+        return hexHash != null && hexHash.length() == 2 * HASH_LENGTH && new BigInteger(hexHash, 16).compareTo(value) < 0;
+    }
+
+    /**
+     * @return double the average number of hashes needed to meet the target
+     */
+    public double getExpectedAttempts() {
+        return Math.pow(2, 8 * HASH_LENGTH) / (value.doubleValue() + 1);
+    }
+
+    public int getCompact() {
+        return compact;
+    }
+
+    public BigInteger getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "Target{" +
+                "compact=0x" + Integer.toHexString(compact) +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return compact == ((Target) o).compact;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(compact);
+    }
+}
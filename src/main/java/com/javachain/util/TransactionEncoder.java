@@ -0,0 +1,149 @@
+package com.javachain.util;
+
+import com.javachain.dto.Hash256;
+import com.javachain.dto.IncomingTransaction;
+import com.javachain.dto.OutgoingTransaction;
+import com.javachain.dto.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code TransactionEncoder} class produces the canonical binary form of a {@link Transaction},
+ * the bytes that are signed, verified and hashed into the transaction id.
+ * <p>
+ * The encoding only contains the transaction itself, inputs are the {@link com.javachain.dto.OutPoint}s they spend,
+ * so its size does not depend on the history behind the inputs. Numbers are big-endian, byte arrays are prefixed
+ * with their length ({@code -1} for null):
+ * <pre>
+ *   version          4 bytes
+ *   initial          1 byte
+ *   timestamp        8 bytes seconds + 4 bytes nanos
+ *   sender key       bytes (X.509 encoded public key)
+ *   input count      4 bytes, for each input:
+ *     parent id      bytes
+ *     output index   4 bytes
+ *   output count     4 bytes, for each output:
+ *     recipient key  bytes
+ *     amount         8 bytes units (see {@link com.javachain.dto.Amount})
+ * </pre>
+ * The signature is not part of the encoding (it signs it) and neither is the fee (it is derived from the inputs
+ * and outputs). {@link #encodeSigned(Transaction)} appends the signature, blocks commit to that form.
+ */
+@Service
+public class TransactionEncoder {
+
+    public static final int VERSION = 2;
+
+    private final HashingUtility hashingUtility;
+
+    @Autowired
+    public TransactionEncoder(HashingUtility hashingUtility) {
+        this.hashingUtility = hashingUtility;
+    }
+
+    /**
+     * @param transaction Transaction
+     * @return byte[] the canonical encoding without the signature, the message that is signed
+     */
+    public byte[] encode(Transaction transaction) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out, transaction);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param transaction Transaction
+     * @return byte[] the canonical encoding followed by the (Base64 decoded) signature
+     */
+    public byte[] encodeSigned(Transaction transaction) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out, transaction);
+            writeBytes(out, transaction.getSignature() == null ? null
+                    : Base64.getDecoder().decode(transaction.getSignature()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The transaction id is the chain hash of the unsigned encoding, so it is known before signing
+     * and stays the same after it. The id of a sealed transaction is not computed again.
+     *
+     * @param transaction Transaction
+     * @return byte[] the transaction id
+     */
+    public byte[] txid(Transaction transaction) {
+        if (transaction.isSealed()) {
+            return transaction.getId().getBytes();
+        }
+        return hashingUtility.hash(encode(transaction));
+    }
+
+    /**
+     * Computes the id of the transaction and seals the transaction with it.
+     *
+     * @param transaction Transaction signed
+     * @return Hash256 the transaction id
+     */
+    public Hash256 seal(Transaction transaction) {
+        if (!transaction.isSealed()) {
+            transaction.seal(Hash256.of(hashingUtility.hash(encode(transaction))));
+        }
+        return transaction.getId();
+    }
+
+    private void write(DataOutputStream out, Transaction transaction) throws IOException {
+        out.writeInt(VERSION);
+        out.writeBoolean(transaction.isInitial());
+        out.writeLong(transaction.getDateCreated().getEpochSecond());
+        out.writeInt(transaction.getDateCreated().getNano());
+        writeKey(out, transaction.getWallet() == null ? null : transaction.getWallet().getPublicKey());
+
+        List<IncomingTransaction> inputs = nullToEmpty(transaction.getIncomingTransactions());
+        out.writeInt(inputs.size());
+        for (IncomingTransaction input : inputs) {
+            writeBytes(out, input.getTxid().getBytes());
+            out.writeInt(input.getOutPutIndex());
+        }
+
+        List<OutgoingTransaction> outputs = nullToEmpty(transaction.getOutgoingTransactions());
+        out.writeInt(outputs.size());
+        for (OutgoingTransaction output : outputs) {
+            writeKey(out, output.getRecipientAddress());
+            out.writeLong(output.getAmountUnits());
+        }
+    }
+
+    private static void writeKey(DataOutputStream out, Key key) throws IOException {
+        writeBytes(out, key == null ? null : key.getEncoded());
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+
+}
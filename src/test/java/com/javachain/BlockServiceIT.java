@@ -1,18 +1,35 @@
 package com.javachain;
 
+import com.javachain.dto.Amount;
 import com.javachain.dto.Block;
+import com.javachain.dto.BlockHeader;
+import com.javachain.dto.Hash256;
+import com.javachain.dto.IncomingTransaction;
+import com.javachain.dto.MerkleProof;
+import com.javachain.dto.MiningResult;
 import com.javachain.dto.OutgoingTransaction;
+import com.javachain.dto.Transaction;
 import com.javachain.dto.Wallet;
+import com.javachain.service.DifficultyService;
+import com.javachain.util.KeyType;
+import com.javachain.util.Target;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class BlockServiceIT extends JcApplicationIT {
 
+    @Autowired
+    DifficultyService difficultyService;
+
     private Block block;
     private Wallet testWallet;
 
@@ -20,21 +37,58 @@ public class BlockServiceIT extends JcApplicationIT {
     public void mineBlock() throws Exception {
         //given
         testWallet = walletService.generateNewWallet("testWallet");
-        donnasWallet.setAmountToBeSent(new BigDecimal(5));
-        johnsWallet.setAmountToBeSent(new BigDecimal(5));
-        t2 = transactionService.send(patriksWallet, false, donnasWallet, johnsWallet);
+        testWallet.setAmountToBeSent(new BigDecimal(5));
         //when new block
         block = blockService.mineBlock(testWallet, new ArrayList<>(), null);
         OutgoingTransaction outTransaction = block.getTransactionList().get(0).getOutgoingTransactions().get(0);
-        //then
+        //then the miner's wallet doesn't carry the block incentive
         assertEquals(1, block.getTransactionList().size());
         assertEquals(outTransaction.getAmount(), new BigDecimal(25));
+        assertEquals(new BigDecimal(5), testWallet.getAmountToBeSent());
         assertEquals(outTransaction.getRecipientAddress(), testWallet.address());
 
         //when existing block
-        Block block1 = blockService.mineBlock(testWallet, Collections.singletonList(t2), block);
+        Block block1 = blockService.mineBlock(testWallet, Collections.singletonList(payment(block)), block);
         //then
         assertEquals(2, block1.getTransactionList().size());
+        assertThrows(SecurityException.class, () -> blockService.mineBlock(testWallet, Collections.singletonList(t2), block));
+    }
+
+    @Test
+    public void merkleProof() throws Exception {
+        //given
+        testWallet = walletService.generateNewWallet("testWallet");
+        Block genesis = blockService.mineBlock(testWallet, new ArrayList<>(), null);
+        Transaction payment = payment(genesis);
+        block = blockService.mineBlock(testWallet, Collections.singletonList(payment), genesis);
+        Block otherBlock = blockService.mineBlock(testWallet, new ArrayList<>(), null);
+        //when
+        MerkleProof proof = blockService.createMerkleProof(block, payment);
+        //then
+        assertEquals(1, proof.getIndex());
+        assertEquals(1, proof.getSiblings().size());
+        assertTrue(blockService.verifyMerkleProof(payment, proof, block.getMerkleRoot()));
+        assertFalse(blockService.verifyMerkleProof(block.getTransactionList().get(0), proof, block.getMerkleRoot()));
+        assertThrows(IllegalArgumentException.class, () -> blockService.createMerkleProof(block, otherBlock.getTransactionList().get(0)));
+    }
+
+    @Test
+    public void ecWallets() throws Exception {
+        //given
+        Wallet alice = walletService.generateNewWallet("alice", KeyType.EC_P256);
+        Wallet bob = walletService.generateNewWallet("bob", KeyType.EC_P256);
+        Block genesis = blockService.mineBlock(alice, new ArrayList<>(), null);
+        alice = walletService.syncBlockchain(alice, genesis);
+        bob = walletService.syncBlockchain(bob, genesis);
+        //when
+        bob.setAmountToBeSent(new BigDecimal(5));
+        Transaction transaction = transactionService.send(alice, false, bob);
+        block = blockService.mineBlock(bob, Collections.singletonList(transaction), genesis);
+        bob = walletService.syncBlockchain(bob, block);
+        //then
+        assertTrue(transactionService.validateTransaction(transaction));
+        assertTrue(blockService.verifyBlock(block));
+        assertEquals(new BigDecimal(30), blockService.computeBalance(bob));
     }
 
     @Test
@@ -48,12 +102,41 @@ public class BlockServiceIT extends JcApplicationIT {
         assertEquals(blockService.computeBalance(testWallet), new BigDecimal(25));
 
         //when existing block
-        Block b1 = blockService.mineBlock(testWallet, Collections.singletonList(t2), block);
+        Block b1 = blockService.mineBlock(testWallet, new ArrayList<>(), block);
         testWallet = walletService.syncBlockchain(testWallet, b1);
         //then
         assertEquals(blockService.computeBalance(testWallet), new BigDecimal(50));
     }
 
+    @Test
+    public void computeBalanceFromTheIndex() throws Exception {
+        //given
+        testWallet = walletService.generateNewWallet("testWallet");
+        block = blockService.mineBlock(testWallet, new ArrayList<>(), null);
+        testWallet = walletService.syncBlockchain(testWallet, block);
+        testWallet.setAmountToBeSent(new BigDecimal(5));
+        Transaction transaction = transactionService.send(testWallet, false, testWallet);
+        Block b1 = blockService.mineBlock(testWallet, Collections.singletonList(transaction), block);
+        Block fork = blockService.mineBlock(testWallet, new ArrayList<>(), block);
+        //when
+        testWallet = walletService.syncBlockchain(testWallet, b1);
+        BigDecimal balance = blockService.computeBalance(testWallet);
+        //then
+        assertSame(b1, chainState.getTip());
+        assertEquals(new BigDecimal(50), balance);
+        assertTrue(blockService.verifyBalances(b1));
+
+        //when the wallet is on a fork that was not verified
+        testWallet.setBlockchain(fork);
+        //then it is scanned, the verified chain stays
+        assertEquals(new BigDecimal(50), blockService.computeBalance(testWallet));
+        assertEquals(2, transactionService.getUnspentOutputs(testWallet).size());
+        assertTrue(blockService.verifyBalances(fork));
+        testWallet.setBlockchain(block);
+        assertEquals(new BigDecimal(25), blockService.computeBalance(testWallet));
+        assertSame(b1, chainState.getTip());
+    }
+
     @Test
     public void verifyBlock() throws Exception {
         //TODO implement following checks https://en.bitcoin.it/wiki/Protocol_rules#.22tx.22_messages
@@ -68,4 +151,131 @@ public class BlockServiceIT extends JcApplicationIT {
         assertTrue(blockService.verifyBlock(block));
     }
 
+    @Test
+    public void verifyBlockHashesTheHeader() throws Exception {
+        //given
+        testWallet = walletService.generateNewWallet("testWallet");
+        block = blockService.mineBlock(testWallet, new ArrayList<>(), null);
+        Block block1 = blockService.mineBlock(testWallet, new ArrayList<>(), block);
+        //when
+        BlockHeader header = blockService.createHeader(block1);
+        //then
+        assertEquals(BlockHeader.LENGTH, header.encode().length);
+        assertEquals(block1.getHash(), encodingUtility.bytesToHex(hashingUtility.hash(header.encode())));
+        assertEquals(block.getHash(), encodingUtility.bytesToHex(header.getPreviousHash()));
+        assertTrue(blockService.verifyBlock(block1));
+
+        //when the transactions are changed after mining
+        block1.getTransactionList().get(0).getOutgoingTransactions().get(0).setAmount(new BigDecimal(1000));
+        //then
+        assertFalse(blockService.verifyBlock(block1));
+
+        //when the nonce is changed
+        block.setNonce(String.valueOf(Long.parseLong(block.getNonce()) + 1));
+        //then
+        assertFalse(blockService.verifyBlock(block));
+    }
+
+    @Test
+    public void verifyBlockChecksTransactionIds() throws Exception {
+        //given a transaction sealed with the id of another transaction
+        testWallet = walletService.generateNewWallet("testWallet");
+        block = blockService.mineBlock(testWallet, new ArrayList<>(), null);
+        testWallet = walletService.syncBlockchain(testWallet, block);
+        Transaction forged = new Transaction();
+        forged.setWallet(testWallet);
+        forged.setIncomingTransactions(Collections.singletonList(
+                new IncomingTransaction(block.getTransactionList().get(0).getId(), 0)));
+        forged.setOutgoingTransactions(Collections.singletonList(
+                new OutgoingTransaction(testWallet.address(), new BigDecimal(25))));
+        forged.setSignature(encryptionUtility.sign(transactionEncoder.encode(forged), testWallet.getPrivateKey()));
+        forged.seal(t2.getId());
+        //when
+        Block b1 = blockService.mineBlock(testWallet, Collections.singletonList(forged), block);
+        //then
+        assertTrue(transactionService.validateTransaction(forged));
+        assertFalse(blockService.verifyBlock(b1));
+        assertThrows(IllegalStateException.class, () -> forged.seal(block.getId()));
+    }
+
+    @Test
+    public void verifyBlockRejectsRepeatedTransactions() throws Exception {
+        //given a block of three transactions
+        testWallet = walletService.generateNewWallet("testWallet");
+        block = blockService.mineBlock(testWallet, new ArrayList<>(), null);
+        Block b1 = blockService.mineBlock(testWallet, new ArrayList<>(), block);
+        Block b2 = blockService.mineBlock(testWallet, Arrays.asList(payment(block), payment(b1)), b1);
+        assertTrue(blockService.verifyBlock(b2));
+        //when the last transaction is repeated
+        b2.getTransactionList().add(b2.getTransactionList().get(2));
+        //then the header still hashes to the block hash
+        assertEquals(b2.getHash(), encodingUtility.bytesToHex(hashingUtility.hash(blockService.createHeader(b2).encode())));
+        assertFalse(blockService.verifyBlock(b2));
+    }
+
+    @Test
+    public void verifyBlockChecksTimestamps() throws Exception {
+        //given
+        testWallet = walletService.generateNewWallet("testWallet");
+        block = blockService.mineBlock(testWallet, new ArrayList<>(), null);
+        Instant earliest = difficultyService.earliestTimestamp(block);
+        //when
+        Block backdated = mine(new Block(testWallet.address(), null, block, earliest.minusMillis(1)));
+        Block onTime = mine(new Block(testWallet.address(), null, block, earliest));
+        Block future = mine(new Block(testWallet.address(), null, block, Instant.now().plus(Duration.ofDays(1))));
+        //then
+        assertFalse(blockService.verifyBlock(backdated));
+        assertTrue(blockService.verifyBlock(onTime));
+        assertFalse(blockService.verifyBlock(future));
+    }
+
+    @Test
+    public void verifyChainSkipsValidatedBlocks() throws Exception {
+        //given
+        testWallet = walletService.generateNewWallet("testWallet");
+        block = blockService.mineBlock(testWallet, new ArrayList<>(), null);
+        Block block1 = blockService.mineBlock(testWallet, new ArrayList<>(), block);
+        Block block2 = blockService.mineBlock(testWallet, new ArrayList<>(), block1);
+        assertTrue(blockService.verifyChain(block2));
+        assertTrue(blockService.isValidated(block2));
+        assertFalse(blockService.isValidated(new Block(testWallet.address(), null, block1)));
+        //when a validated block is changed
+        block1.getTransactionList().get(0).getOutgoingTransactions().get(0).setAmount(new BigDecimal(1000));
+        //then only the full verification sees it
+        assertTrue(blockService.verifyChain(block2));
+        assertFalse(blockService.verifyBlock(block2));
+        assertFalse(blockService.isValidated(block2));
+        assertFalse(blockService.verifyChain(block2));
+        assertThrows(SecurityException.class, () -> blockService.mineBlock(testWallet, new ArrayList<>(), block2));
+    }
+
+    /**
+     * A transaction of the test wallet spending the block incentive of the block.
+     */
+    private Transaction payment(Block minedBlock) throws Exception {
+        Transaction payment = new Transaction();
+        payment.setWallet(testWallet);
+        payment.setIncomingTransactions(Collections.singletonList(
+                new IncomingTransaction(minedBlock.getTransactionList().get(0).getId(), 0)));
+        payment.setOutgoingTransactions(Collections.singletonList(
+                new OutgoingTransaction(testWallet.address(), new BigDecimal(25))));
+        payment.setSignature(encryptionUtility.sign(transactionEncoder.encode(payment), testWallet.getPrivateKey()));
+        return payment;
+    }
+
+    /**
+     * Mines the block the way {@code BlockService.mineBlock} does, keeping its timestamp.
+     */
+    private Block mine(Block newBlock) {
+        Target target = difficultyService.nextTarget(newBlock.getPreviousBlock());
+        newBlock.setTarget(target.getCompact());
+        newBlock.setTransactionList(new ArrayList<>(Collections.singletonList(transactionService.send(testWallet, true,
+                Collections.singletonList(new OutgoingTransaction(testWallet.address(), Amount.coins(25)))))));
+        BlockHeader header = blockService.createHeader(newBlock);
+        newBlock.setMerkleRoot(encodingUtility.bytesToHex(header.getMerkleRoot()));
+        MiningResult result = miningService.proofOfWork(header, target, () -> false);
+        newBlock.setNonce(String.valueOf(result.getNonce()));
+        newBlock.seal(Hash256.fromHex(result.getDigest()));
+        return newBlock;
+    }
 }
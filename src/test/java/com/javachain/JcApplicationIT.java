@@ -3,12 +3,16 @@ package com.javachain;
 import com.javachain.dto.Block;
 import com.javachain.dto.Transaction;
 import com.javachain.dto.Wallet;
+import com.javachain.index.ChainState;
+import com.javachain.index.TransactionIndex;
 import com.javachain.service.BlockService;
 import com.javachain.service.MiningService;
 import com.javachain.service.TransactionService;
 import com.javachain.service.WalletService;
+import com.javachain.util.EncodingUtility;
 import com.javachain.util.EncryptionUtility;
 import com.javachain.util.HashingUtility;
+import com.javachain.util.TransactionEncoder;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -47,12 +51,20 @@ public class JcApplicationIT {
     @Autowired
     HashingUtility hashingUtility;
     @Autowired
+    EncodingUtility encodingUtility;
+    @Autowired
+    TransactionEncoder transactionEncoder;
+    @Autowired
     MiningService miningService;
     @Autowired
     TransactionService transactionService;
     @Autowired
     BlockService blockService;
     @Autowired
+    TransactionIndex transactionIndex;
+    @Autowired
+    ChainState chainState;
+    @Autowired
     protected WalletService walletService;
     @Autowired
     private Shell shell;
@@ -215,7 +227,7 @@ public class JcApplicationIT {
         LOGGER.debug("Genesis block mined");
 
         donnasWallet.setAmountToBeSent(new BigDecimal(5));
-        t2 = transactionService.send(johnsWallet, false, donnasWallet);
+        assertThrows(IllegalStateException.class, () -> transactionService.send(johnsWallet, false, donnasWallet)); // john has nothing yet
 
         assertEquals(blockService.computeBalance(patriksWallet), new BigDecimal(0));
         assertEquals(blockService.computeBalance(donnasWallet), new BigDecimal(0));
@@ -223,36 +235,48 @@ public class JcApplicationIT {
 
         LOGGER.debug("b1        : " + b1.getHash() + " with fee=" + transactionService.computeTotalFee(b1.getTransactionList()));
 
-        Block b2 = blockService.mineBlock(johnsWallet, Collections.singletonList(t2), b1); // this is new block john should get 25 tokens
+        Block b2 = blockService.mineBlock(johnsWallet, new ArrayList<>(), b1); // this is new block john should get 25 tokens
+
+        patriksWallet = walletService.syncBlockchain(patriksWallet, b2);
+        johnsWallet = walletService.syncBlockchain(johnsWallet, b2);
+        donnasWallet = walletService.syncBlockchain(donnasWallet, b2);
 
         patriksWallet.setAmountToBeSent(new BigDecimal(5));
         donnasWallet.setAmountToBeSent(new BigDecimal(5));
         t3 = transactionService.send(johnsWallet, false, donnasWallet, patriksWallet);
 
+        assertTrue(transactionService.validateTransaction(t3));
+
+        Block b3 = blockService.mineBlock(johnsWallet, Collections.singletonList(t3), b2); // this is new block john should get 25 tokens
+
+        patriksWallet = walletService.syncBlockchain(patriksWallet, b3);
+        johnsWallet = walletService.syncBlockchain(johnsWallet, b3);
+        donnasWallet = walletService.syncBlockchain(donnasWallet, b3);
+
         patriksWallet.setAmountToBeSent(new BigDecimal(1));
         johnsWallet.setAmountToBeSent(new BigDecimal(8));
+        assertThrows(IllegalStateException.class, () -> transactionService.send(donnasWallet, false, johnsWallet, patriksWallet)); // donna has 5
+        johnsWallet.setAmountToBeSent(new BigDecimal(4));
         t4 = transactionService.send(donnasWallet, false, johnsWallet, patriksWallet);
 
-        assertTrue(transactionService.validateTransaction(t2));
-        assertTrue(transactionService.validateTransaction(t3));
         assertTrue(transactionService.validateTransaction(t4));
 
-        Block b3 = blockService.mineBlock(johnsWallet, Arrays.asList(t3, t4), b2); // this is new block john should get 25 tokens
+        Block b4 = blockService.mineBlock(donnasWallet, Collections.singletonList(t4), b3);
 
-        patriksWallet = walletService.syncBlockchain(patriksWallet, b3);
-        johnsWallet = walletService.syncBlockchain(johnsWallet, b3);
-        donnasWallet = walletService.syncBlockchain(donnasWallet, b3);
+        patriksWallet = walletService.syncBlockchain(patriksWallet, b4);
+        johnsWallet = walletService.syncBlockchain(johnsWallet, b4);
+        donnasWallet = walletService.syncBlockchain(donnasWallet, b4);
 
         BigDecimal patriksCoins = blockService.computeBalance(patriksWallet);
-        assertEquals(patriksCoins, new BigDecimal(31)); //25 + 1 + 5 ?30
+        assertEquals(patriksCoins, new BigDecimal(31)); // 25 + 5 + 1
         LOGGER.debug("Patrik  has {} javacoins\n", patriksCoins);
 
         BigDecimal donnasCoins = blockService.computeBalance(donnasWallet);
-        assertEquals(donnasCoins, new BigDecimal(1)); // 5 + 5 - 9 ?7
+        assertEquals(donnasCoins, new BigDecimal(25)); // 5 - 5 + 25
         LOGGER.debug("Donna  has {} javacoins\n", donnasCoins);
 
         BigDecimal johnsCoins = blockService.computeBalance(johnsWallet);
-        assertEquals(johnsCoins, new BigDecimal(43)); // 50 - 15 + 8 = 43 ?38
+        assertEquals(johnsCoins, new BigDecimal(44)); // 50 - 10 + 4
         LOGGER.debug("John  has {} javacoins\n", johnsCoins);
     }
 
@@ -328,8 +352,8 @@ public class JcApplicationIT {
         }
 
         //TODO add to initial transaction created and check if we really need the wallet in transaction
-        t4.setSignature(encryptionUtility.sign(t4.toString(), donnasWallet.getPrivateKey()));
-        assertTrue(encryptionUtility.verifySignature(t4.toString(), t4.getSignature(), t4.getWallet().address()));
+        t4.setSignature(encryptionUtility.sign(transactionEncoder.encode(t4), donnasWallet.getPrivateKey()));
+        assertTrue(encryptionUtility.verifySignature(transactionEncoder.encode(t4), t4.getSignature(), t4.getWallet().address()));
 
 //        t3 transaction needs to be approved
 //        blockchain needs to be validated first (in that case john is the miner and we don't take into account that more than x should approve the transaction)
@@ -341,6 +365,10 @@ public class JcApplicationIT {
             LOGGER.debug("Expected fail : initialBlock and transactions are already used");
         }
 
+        // t3 spends john's reward from newValidatedBlock, that output is not on the chain of initialBlock
+        assertFalse(blockService.verifyBlock(b2));
+        b2 = blockService.mineBlock(patriksWallet, Collections.singletonList(t3), newValidatedBlock);
+
 //        b2 = newblockService.mineBlock(patriksWallet, Arrays.asList(t2, t3), initialBlock);
         //sync the new block (with approved t3 tran)
         donnasWallet = walletService.syncBlockchain(donnasWallet, b2);
@@ -359,12 +387,14 @@ public class JcApplicationIT {
         johnsWallet.setAmountToBeSent(BigDecimal.ONE);
         Transaction tx = transactionService.send(johnsWallet, false, johnsWallet);
 
-        tx.setSignature(encryptionUtility.sign(tx.toString(), johnsWallet.getPrivateKey()));
-        assertTrue(encryptionUtility.verifySignature(tx.toString(), tx.getSignature(), tx.getWallet().address()));
-
-        Block block = blockService.mineBlock(johnsWallet, Collections.singletonList(tx), b3);
+        tx.setSignature(encryptionUtility.sign(transactionEncoder.encode(tx), johnsWallet.getPrivateKey()));
+        assertTrue(encryptionUtility.verifySignature(transactionEncoder.encode(tx), tx.getSignature(), tx.getWallet().address()));
 
-        assertFalse(blockService.verifyBlock(block));
+        // t3 is spent again in b3, nothing can be mined on top of it
+        Block invalidBlock = b3;
+        assertFalse(blockService.verifyBlock(invalidBlock));
+        assertThrows(SecurityException.class,
+                () -> blockService.mineBlock(johnsWallet, Collections.singletonList(tx), invalidBlock));
 
         assertEquals(new BigDecimal(15), blockService.computeBalance(patriksWallet));
         assertEquals(new BigDecimal(10), blockService.computeBalance(donnasWallet));
@@ -0,0 +1,44 @@
+package com.javachain.actuator;
+
+import com.javachain.service.ContinuousMiningService;
+import com.javachain.service.MiningService;
+import com.javachain.util.EncodingUtility;
+import com.javachain.util.HashingUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MiningEndpointTest {
+
+    private final EncodingUtility encodingUtility = new EncodingUtility();
+    private final MiningService miningService = new MiningService(new HashingUtility(encodingUtility), encodingUtility);
+
+    @Mock
+    ContinuousMiningService continuousMiningService;
+
+    @Test
+    void mining() {
+        //given
+        MiningEndpoint miningEndpoint = new MiningEndpoint(miningService, continuousMiningService);
+        miningService.proofOfWork("42", 3, 1);
+        //when
+        when(continuousMiningService.isRunning()).thenReturn(true);
+        when(continuousMiningService.getBlocksMined()).thenReturn(7L);
+        Map<String, Object> statistics = miningEndpoint.mining();
+        //then
+        assertEquals(1L, statistics.get("searches"));
+        assertEquals(2273L, statistics.get("hashes"));
+        assertEquals(2273.0, statistics.get("meanAttempts"));
+        assertEquals(4096.0, statistics.get("difficulty"));
+        assertEquals(true, statistics.get("minerRunning"));
+        assertEquals(7L, statistics.get("blocksMined"));
+        assertNull(statistics.get("height"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.javachain.benchmark;
+
+import com.javachain.dto.Block;
+import com.javachain.dto.Transaction;
+import com.javachain.dto.Wallet;
+import com.javachain.index.ChainState;
+import com.javachain.index.TransactionIndex;
+import com.javachain.service.BlockService;
+import com.javachain.service.DifficultyService;
+import com.javachain.service.MiningService;
+import com.javachain.service.TransactionService;
+import com.javachain.service.WalletService;
+import com.javachain.util.EncodingUtility;
+import com.javachain.util.EncryptionUtility;
+import com.javachain.util.HashingUtility;
+import com.javachain.util.KeyPairPool;
+import com.javachain.util.SignatureCache;
+import com.javachain.util.TransactionEncoder;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+
+/**
+ * Grows a chain block by block (every block with a signed transaction) and measures, per height:
+ * <ul>
+ *     <li>incremental, {@link BlockService#verifyChain(Block)} of the new tip on top of the validated chain,
+ *     what mining and syncing do,</li>
+ *     <li>full, {@link BlockService#verifyBlock(Block)} of the whole chain down to the genesis block.</li>
+ * </ul>
+ * The incremental cost should stay flat while the full one grows with the height.
+ * The signature cache is disabled, so the full verification checks every signature again.
+ * It is not a unit test, run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.javachain.benchmark.ChainValidationBenchmark}
+ * (the chain height can be passed as the first argument).
+ */
+public class ChainValidationBenchmark {
+
+    private static final int REPORT_EVERY = 100;
+
+    public static void main(String[] args) throws Exception {
+        int height = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        EncodingUtility encodingUtility = new EncodingUtility();
+        HashingUtility hashingUtility = new HashingUtility(encodingUtility);
+        EncryptionUtility encryptionUtility = new EncryptionUtility();
+        MiningService miningService = new MiningService(hashingUtility, encodingUtility);
+        DifficultyService difficultyService = new DifficultyService();
+        difficultyService.setTargetBlockTime(Duration.ofMillis(1)); // keeps the proof-of-work out of the way
+        TransactionEncoder transactionEncoder = new TransactionEncoder(hashingUtility);
+        TransactionIndex transactionIndex = new TransactionIndex();
+        ChainState chainState = new ChainState();
+        TransactionService transactionService = new TransactionService(encryptionUtility, hashingUtility,
+                miningService, transactionEncoder, transactionIndex, new SignatureCache(0), chainState);
+        BlockService blockService = new BlockService(encryptionUtility, transactionService, hashingUtility,
+                miningService, difficultyService, encodingUtility, transactionEncoder, transactionIndex, chainState);
+        blockService.setValidationThreads(1);
+        WalletService walletService = new WalletService(encryptionUtility, hashingUtility, miningService,
+                transactionService, blockService, new KeyPairPool(encryptionUtility, 0));
+
+        // the miner's coinbase transactions spend nothing, the sender keeps paying itself out of its unspent outputs
+        Wallet miner = walletService.generateNewWallet("miner");
+        Wallet sender = walletService.generateNewWallet("sender");
+        sender.setAmountToBeSent(BigDecimal.ONE);
+
+        Block tip = blockService.mineBlock(sender, Collections.emptyList(), null);
+        long incrementalNanos = 0;
+        System.out.printf("%8s %22s %16s%n", "height", "incremental [ms/block]", "full [ms/chain]");
+        try {
+            for (int i = 1; i < height; i++) {
+                sender.setBlockchain(tip);
+                Transaction transaction = transactionService.send(sender, false, sender);
+                tip = blockService.mineBlock(miner, Collections.singletonList(transaction), tip);
+
+                long started = System.nanoTime();
+                if (!blockService.verifyChain(tip)) {
+                    throw new IllegalStateException("Invalid chain at height " + i);
+                }
+                incrementalNanos += System.nanoTime() - started;
+
+                if ((i + 1) % REPORT_EVERY == 0) {
+                    started = System.nanoTime();
+                    if (!blockService.verifyBlock(tip)) {
+                        throw new IllegalStateException("Invalid chain at height " + i);
+                    }
+                    long fullNanos = System.nanoTime() - started;
+                    System.out.printf("%8d %22.3f %16.3f%n", i + 1, incrementalNanos / 1e6 / REPORT_EVERY, fullNanos / 1e6);
+                    incrementalNanos = 0;
+                }
+            }
+        } finally {
+            blockService.shutdown();
+            miningService.shutdown();
+        }
+    }
+}
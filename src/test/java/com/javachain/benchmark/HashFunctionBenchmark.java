@@ -0,0 +1,87 @@
+package com.javachain.benchmark;
+
+import com.javachain.util.DoubleSha256HashFunction;
+import com.javachain.util.HashFunction;
+import com.javachain.util.ProofOfWorkKernel;
+import com.javachain.util.Sha256HashFunction;
+import com.javachain.util.Sha3HashFunction;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the hash functions of the chain:
+ * <ul>
+ *     <li>mining, nonces per second of an 80 byte (header sized) and of a 2 KB prefix,</li>
+ *     <li>validation, digests per second of a whole 2 KB block.</li>
+ * </ul>
+ * It is not a unit test, run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.javachain.benchmark.HashFunctionBenchmark}.
+ */
+public class HashFunctionBenchmark {
+
+    private static final long WARM_UP_MILLIS = 2000;
+    private static final long MEASURE_MILLIS = 3000;
+
+    public static void main(String[] args) {
+        List<HashFunction> hashFunctions = Arrays.asList(
+                new Sha256HashFunction(), new DoubleSha256HashFunction(), new Sha3HashFunction());
+        byte[] header = new byte[80];
+        byte[] block = new byte[2048];
+        Arrays.fill(block, (byte) 'x');
+
+        System.out.printf("%-10s %18s %18s %18s%n", "function", "mine 80B [MH/s]", "mine 2KB [MH/s]", "hash 2KB [MH/s]");
+        for (HashFunction hashFunction : hashFunctions) {
+            double mineHeader = mine(hashFunction, header);
+            double mineBlock = mine(hashFunction, block);
+            double hashBlock = hash(hashFunction, block);
+            System.out.printf("%-10s %18.3f %18.3f %18.3f%n", hashFunction.getName(), mineHeader, mineBlock, hashBlock);
+        }
+    }
+
+    private static double mine(HashFunction hashFunction, byte[] prefix) {
+        ProofOfWorkKernel kernel = new ProofOfWorkKernel(hashFunction, prefix);
+        return measure(nonce -> kernel.hash(nonce)[0]);
+    }
+
+    private static double hash(HashFunction hashFunction, byte[] data) {
+        return measure(i -> {
+            data[0] = (byte) i;
+            return hashFunction.hash(data)[0];
+        });
+    }
+
+    /**
+     * Runs the operation in a loop, returns millions of operations per second.
+     */
+    private static double measure(Operation operation) {
+        long sink = 0;
+        long i = 0;
+        long end = System.currentTimeMillis() + WARM_UP_MILLIS;
+        while (System.currentTimeMillis() < end) {
+            for (int j = 0; j < 1000; j++) {
+                sink += operation.run(i++);
+            }
+        }
+
+        long count = 0;
+        long started = System.nanoTime();
+        end = System.currentTimeMillis() + MEASURE_MILLIS;
+        while (System.currentTimeMillis() < end) {
+            for (int j = 0; j < 1000; j++) {
+                sink += operation.run(i++);
+            }
+            count += 1000;
+        }
+        long elapsed = System.nanoTime() - started;
+        if (sink == 42) {
+            System.out.print(""); // keeps the results alive
+        }
+        return count * 1000.0 / elapsed;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        int run(long i);
+    }
+}
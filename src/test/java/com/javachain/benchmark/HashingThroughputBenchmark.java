@@ -0,0 +1,59 @@
+package com.javachain.benchmark;
+
+import com.javachain.util.EncodingUtility;
+import com.javachain.util.HashingUtility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures how the {@link HashingUtility} throughput grows with the number of threads, the digests are kept
+ * per thread, so no lock is shared. A wall-clock speed-up depends on the cores the machine has free, so it is
+ * measured here rather than asserted in a unit test.
+ * It is not a unit test, run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.javachain.benchmark.HashingThroughputBenchmark}.
+ */
+public class HashingThroughputBenchmark {
+
+    private static final int HASHES_PER_THREAD = 200_000;
+
+    private static final HashingUtility HASHING_UTILITY = new HashingUtility(new EncodingUtility());
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        hashesPerSecond(maxThreads); // warm up
+
+        double single = 0;
+        System.out.printf("%8s %18s %10s%n", "threads", "hashes/s", "speed-up");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double hashesPerSecond = hashesPerSecond(threads);
+            if (threads == 1) {
+                single = hashesPerSecond;
+            }
+            System.out.printf("%8d %18.0f %10.2f%n", threads, hashesPerSecond, hashesPerSecond / single);
+        }
+    }
+
+    private static double hashesPerSecond(int threads) throws Exception {
+        byte[] data = new byte[64];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < HASHES_PER_THREAD; i++) {
+                    HASHING_UTILITY.sha256(data);
+                    HASHING_UTILITY.getMD5("test");
+                }
+                return null;
+            });
+        }
+        long started = System.nanoTime();
+        executor.invokeAll(tasks);
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+        return threads * (double) HASHES_PER_THREAD * 1e9 / elapsed;
+    }
+}
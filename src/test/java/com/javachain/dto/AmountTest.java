@@ -0,0 +1,36 @@
+package com.javachain.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountTest {
+
+    @Test
+    void conversion() {
+        //given
+        long units = Amount.of(new BigDecimal("1.5"));
+        //when
+        BigDecimal amount = Amount.toDecimal(Amount.add(units, Amount.coins(25)));
+        //then
+        assertEquals(150_000_000L, units);
+        assertEquals(new BigDecimal("26.5"), amount);
+        assertEquals(new BigDecimal(25), Amount.toDecimal(Amount.coins(25)));
+        assertEquals(new BigDecimal(100), Amount.toDecimal(Amount.of(new BigDecimal("1E+2"))));
+        assertEquals(BigDecimal.ZERO, Amount.toDecimal(0));
+        assertEquals(new BigDecimal("0.00000001"), Amount.toDecimal(1));
+        assertThrows(ArithmeticException.class, () -> Amount.of(new BigDecimal("0.000000001")));
+    }
+
+    @Test
+    void overflow() {
+        assertEquals(-1, Amount.subtract(Amount.coins(1), Amount.coins(1) + 1));
+        assertThrows(ArithmeticException.class, () -> Amount.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Amount.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Amount.negate(Long.MIN_VALUE));
+        assertThrows(ArithmeticException.class, () -> Amount.coins(Long.MAX_VALUE / Amount.UNITS_PER_COIN + 1));
+        assertThrows(ArithmeticException.class, () -> Amount.of(new BigDecimal("1E+12")));
+    }
+}
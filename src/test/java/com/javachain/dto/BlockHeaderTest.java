@@ -0,0 +1,40 @@
+package com.javachain.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockHeaderTest {
+
+    @Test
+    void encode() {
+        //given
+        byte[] previousHash = new byte[32];
+        Arrays.fill(previousHash, (byte) 0xaa);
+        byte[] merkleRoot = new byte[32];
+        Arrays.fill(merkleRoot, (byte) 0xbb);
+        BlockHeader header = new BlockHeader(1, previousHash, merkleRoot, 0x0102030405060708L, 0x20010000, 0x1122334455667788L);
+        //when
+        byte[] encoded = header.encode();
+        //then
+        assertEquals(BlockHeader.LENGTH, encoded.length);
+        assertArrayEquals(new byte[]{0, 0, 0, 1}, Arrays.copyOfRange(encoded, 0, 4));
+        assertArrayEquals(previousHash, Arrays.copyOfRange(encoded, 4, 36));
+        assertArrayEquals(merkleRoot, Arrays.copyOfRange(encoded, 36, 68));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, Arrays.copyOfRange(encoded, 68, 76));
+        assertArrayEquals(new byte[]{0x20, 0x01, 0, 0}, Arrays.copyOfRange(encoded, 76, 80));
+        assertArrayEquals(new byte[]{0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77, (byte) 0x88}, Arrays.copyOfRange(encoded, 80, 88));
+        assertArrayEquals(Arrays.copyOf(encoded, BlockHeader.NONCE_OFFSET), header.encodeWithoutNonce());
+        assertEquals(header, BlockHeader.decode(encoded));
+        assertEquals(header.withNonce(0), BlockHeader.decode(header.withNonce(0).encode()));
+        assertNotEquals(header, header.withNonce(0));
+    }
+
+    @Test
+    void rejectsWrongHashLength() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockHeader(1, new byte[31], new byte[32], 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> BlockHeader.decode(new byte[87]));
+    }
+}
@@ -0,0 +1,60 @@
+package com.javachain.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Hash256Test {
+
+    private static final String HEX = "00ff000000000000000000000000000000000000000000000000000000000001";
+
+    @Test
+    void fromHex() {
+        //given
+        Hash256 hash = Hash256.fromHex(HEX);
+        //when
+        byte[] bytes = hash.getBytes();
+        bytes[0] = 1;
+        //then
+        assertEquals(HEX, hash.toHex());
+        assertEquals(hash, Hash256.of(Hash256.fromHex(HEX).getBytes()));
+        assertEquals(hash.hashCode(), Hash256.fromHex(HEX).hashCode());
+        assertNotEquals(hash, Hash256.of(bytes));
+        assertThrows(IllegalArgumentException.class, () -> Hash256.of(new byte[31]));
+        assertThrows(IllegalArgumentException.class, () -> Hash256.fromHex("00ff"));
+    }
+
+    @Test
+    void hashCodeDependsOnTheTrailingBytes() {
+        //given hashes with the leading zeros of a proof-of-work
+        Set<Integer> hashCodes = new HashSet<>();
+        //when
+        for (int i = 0; i < 256; i++) {
+            byte[] bytes = new byte[Hash256.LENGTH];
+            bytes[Hash256.LENGTH - 1] = (byte) i;
+            hashCodes.add(Hash256.of(bytes).hashCode());
+        }
+        //then
+        assertEquals(256, hashCodes.size());
+    }
+
+    @Test
+    void sealedBlocksAreComparedByHash() {
+        //given
+        Block block = new Block(null, Collections.emptyList(), null);
+        Block copy = new Block(null, Collections.emptyList(), null);
+        //when
+        block.seal(Hash256.fromHex(HEX));
+        copy.seal(Hash256.fromHex(HEX));
+        Set<Block> blocks = new HashSet<>();
+        blocks.add(block);
+        //then
+        assertEquals(block, copy);
+        assertTrue(blocks.contains(copy));
+        assertEquals(HEX, copy.getHash());
+    }
+}
@@ -0,0 +1,239 @@
+package com.javachain.index;
+
+import com.javachain.dto.Amount;
+import com.javachain.dto.Block;
+import com.javachain.dto.Hash256;
+import com.javachain.dto.IncomingTransaction;
+import com.javachain.dto.OutPoint;
+import com.javachain.dto.OutgoingTransaction;
+import com.javachain.dto.Transaction;
+import com.javachain.dto.Wallet;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainStateTest {
+
+    private final ChainState chainState = new ChainState();
+
+    private int ids;
+
+    @Test
+    void connect() {
+        //given
+        Transaction coinbase = transaction(Collections.emptyList(), 2);
+        Block genesis = block(null, coinbase);
+        Transaction spend = transaction(Collections.singletonList(new OutPoint(coinbase.getId(), 0)), 1);
+        Transaction spendInBlock = transaction(Collections.singletonList(new OutPoint(spend.getId(), 0)), 1);
+        Block block = block(genesis, spend, spendInBlock);
+        //when
+        assertTrue(chainState.connect(genesis));
+        assertTrue(chainState.connect(block));
+        //then
+        assertSame(block, chainState.getTip());
+        assertEquals(2, chainState.getHeight());
+        assertEquals(2, chainState.size());
+        assertFalse(chainState.isUnspent(new OutPoint(coinbase.getId(), 0)));
+        assertFalse(chainState.isUnspent(new OutPoint(spend.getId(), 0)));
+        assertSame(coinbase.getOutgoingTransactions().get(1), chainState.getUnspent(new OutPoint(coinbase.getId(), 1)));
+        assertTrue(chainState.isUnspent(new OutPoint(spendInBlock.getId(), 0)));
+    }
+
+    @Test
+    void doubleSpendIsRejected() {
+        //given
+        Transaction coinbase = transaction(Collections.emptyList(), 1);
+        Block genesis = block(null, coinbase);
+        OutPoint outPoint = new OutPoint(coinbase.getId(), 0);
+        Block block = block(genesis, transaction(Collections.singletonList(outPoint), 1));
+        chainState.connect(genesis);
+        chainState.connect(block);
+        //when
+        Block doubleSpend = block(block, transaction(Collections.emptyList(), 1),
+                transaction(Collections.singletonList(outPoint), 1));
+        //then
+        assertFalse(chainState.connect(doubleSpend));
+        assertSame(block, chainState.getTip());
+        assertEquals(1, chainState.size());
+    }
+
+    @Test
+    void sameOutputTwiceInOneBlockIsRejected() {
+        //given
+        Transaction coinbase = transaction(Collections.emptyList(), 1);
+        Block genesis = block(null, coinbase);
+        OutPoint outPoint = new OutPoint(coinbase.getId(), 0);
+        chainState.connect(genesis);
+        //when
+        Block block = block(genesis, transaction(Collections.singletonList(outPoint), 1),
+                transaction(Collections.singletonList(outPoint), 1));
+        //then
+        assertFalse(chainState.connect(block));
+        assertTrue(chainState.isUnspent(outPoint));
+        assertEquals(1, chainState.size());
+    }
+
+    @Test
+    void repeatedTransactionIsRejected() {
+        //given
+        Transaction coinbase = transaction(Collections.emptyList(), 1);
+        Block genesis = block(null, coinbase);
+        chainState.connect(genesis);
+        //when
+        Block block = block(genesis, transaction(Collections.emptyList(), 1), coinbase);
+        //then
+        assertFalse(chainState.connect(block));
+        assertSame(genesis, chainState.getTip());
+        assertEquals(1, chainState.size());
+        assertTrue(chainState.isUnspent(new OutPoint(coinbase.getId(), 0)));
+        chainState.disconnect();
+        assertEquals(0, chainState.size());
+    }
+
+    @Test
+    void unknownOutputIsRejected() {
+        //given
+        Block genesis = block(null, transaction(Collections.emptyList(), 1));
+        chainState.connect(genesis);
+        //when
+        Block block = block(genesis, transaction(Collections.singletonList(new OutPoint(id(), 0)), 1));
+        //then
+        assertFalse(chainState.connect(block));
+        assertThrows(IllegalArgumentException.class, () -> chainState.connect(block(null)));
+    }
+
+    @Test
+    void disconnect() {
+        //given
+        Transaction coinbase = transaction(Collections.emptyList(), 1);
+        Block genesis = block(null, coinbase);
+        OutPoint outPoint = new OutPoint(coinbase.getId(), 0);
+        Transaction spend = transaction(Collections.singletonList(outPoint), 1);
+        Block block = block(genesis, spend, transaction(Collections.singletonList(new OutPoint(spend.getId(), 0)), 1));
+        chainState.connect(genesis);
+        chainState.connect(block);
+        //when
+        chainState.disconnect();
+        //then
+        assertSame(genesis, chainState.getTip());
+        assertEquals(1, chainState.size());
+        assertTrue(chainState.isUnspent(outPoint));
+        assertFalse(chainState.isUnspent(new OutPoint(spend.getId(), 0)));
+        chainState.disconnect();
+        assertNull(chainState.getTip());
+        assertEquals(0, chainState.size());
+        assertThrows(IllegalStateException.class, chainState::disconnect);
+    }
+
+    @Test
+    void moveTo() {
+        //given two chains sharing the genesis block, both spending its output
+        Transaction coinbase = transaction(Collections.emptyList(), 1);
+        Block genesis = block(null, coinbase);
+        OutPoint outPoint = new OutPoint(coinbase.getId(), 0);
+        Transaction spendA = transaction(Collections.singletonList(outPoint), 1);
+        Block a1 = block(genesis, spendA);
+        Block a2 = block(a1, transaction(Collections.emptyList(), 1));
+        Transaction spendB = transaction(Collections.singletonList(outPoint), 1);
+        Block b1 = block(genesis, spendB);
+        //when
+        assertTrue(chainState.moveTo(a2));
+        assertTrue(chainState.moveTo(b1));
+        //then
+        assertSame(b1, chainState.getTip());
+        assertTrue(chainState.contains(genesis));
+        assertFalse(chainState.contains(a1));
+        assertTrue(chainState.isUnspent(new OutPoint(spendB.getId(), 0)));
+        assertFalse(chainState.isUnspent(new OutPoint(spendA.getId(), 0)));
+        assertTrue(chainState.moveTo(null));
+        assertEquals(0, chainState.size());
+    }
+
+    @Test
+    void balances() throws Exception {
+        //given
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        Wallet alice = new Wallet(null, generator.generateKeyPair().getPublic(), "alice", null);
+        PublicKey bob = generator.generateKeyPair().getPublic();
+        Transaction coinbase = transaction(Collections.emptyList(), 0);
+        coinbase.setInitial(true);
+        coinbase.setWallet(alice);
+        coinbase.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(alice.address(), new BigDecimal(25))));
+        Block genesis = block(null, coinbase);
+        Transaction payment = transaction(Collections.singletonList(new OutPoint(coinbase.getId(), 0)), 0);
+        payment.setWallet(alice);
+        payment.setOutgoingTransactions(Arrays.asList(new OutgoingTransaction(bob, BigDecimal.TEN),
+                new OutgoingTransaction(alice.address(), new BigDecimal(15))));
+        Block block = block(genesis, payment);
+        //when
+        chainState.connect(genesis);
+        chainState.connect(block);
+        //then
+        assertEquals(Amount.coins(15), chainState.getBalance(alice.address()));
+        assertEquals(Amount.coins(10), chainState.getBalance(bob));
+        assertEquals(2, chainState.getBalances().size());
+        assertEquals(Collections.singleton(new OutPoint(payment.getId(), 0)), chainState.getUnspent(bob).keySet());
+        assertEquals(Collections.singleton(new OutPoint(payment.getId(), 1)), chainState.getUnspent(alice.address()).keySet());
+
+        //when the payment is modified after it was connected
+        payment.getOutgoingTransactions().get(0).setAmount(new BigDecimal(1000));
+        chainState.disconnect();
+        //then the balances are reverted as they were applied
+        assertEquals(Amount.coins(25), chainState.getBalance(alice.address()));
+        assertEquals(0, chainState.getBalance(bob));
+        assertEquals(1, chainState.getBalances().size());
+        assertTrue(chainState.getUnspent(bob).isEmpty());
+        assertEquals(Collections.singleton(new OutPoint(coinbase.getId(), 0)), chainState.getUnspent(alice.address()).keySet());
+    }
+
+    @Test
+    void balanceOverflowIsRejected() throws Exception {
+        //given
+        PublicKey alice = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+        Transaction coinbase = transaction(Collections.emptyList(), 0);
+        coinbase.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(alice, Long.MAX_VALUE)));
+        Block genesis = block(null, coinbase);
+        chainState.connect(genesis);
+        //when
+        Transaction more = transaction(Collections.emptyList(), 0);
+        more.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(alice, 1)));
+        //then
+        assertFalse(chainState.connect(block(genesis, more)));
+        assertSame(genesis, chainState.getTip());
+        assertEquals(Long.MAX_VALUE, chainState.getBalance(alice));
+    }
+
+    private Block block(Block previousBlock, Transaction... transactions) {
+        return new Block(null, new ArrayList<>(Arrays.asList(transactions)), previousBlock);
+    }
+
+    private Transaction transaction(List<OutPoint> inputs, int outputs) {
+        Transaction transaction = new Transaction();
+        List<IncomingTransaction> incomingTransactions = new ArrayList<>();
+        for (OutPoint input : inputs) {
+            incomingTransactions.add(new IncomingTransaction(input));
+        }
+        transaction.setIncomingTransactions(incomingTransactions);
+        List<OutgoingTransaction> outgoingTransactions = new ArrayList<>();
+        for (int i = 0; i < outputs; i++) {
+            outgoingTransactions.add(new OutgoingTransaction(null, BigDecimal.ONE));
+        }
+        transaction.setOutgoingTransactions(outgoingTransactions);
+        transaction.seal(id());
+        return transaction;
+    }
+
+    private Hash256 id() {
+        byte[] bytes = new byte[Hash256.LENGTH];
+        bytes[0] = (byte) ++ids;
+        return Hash256.of(bytes);
+    }
+}
@@ -0,0 +1,44 @@
+package com.javachain.index;
+
+import com.javachain.dto.Hash256;
+import com.javachain.dto.OutPoint;
+import com.javachain.dto.OutgoingTransaction;
+import com.javachain.dto.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIndexTest {
+
+    private static final Hash256 ID = Hash256.of(new byte[Hash256.LENGTH]);
+
+    private final TransactionIndex transactionIndex = new TransactionIndex();
+
+    @Test
+    void getOutput() {
+        //given
+        OutgoingTransaction output = new OutgoingTransaction(null, BigDecimal.TEN);
+        Transaction transaction = new Transaction();
+        transaction.setOutgoingTransactions(Collections.singletonList(output));
+        transaction.seal(ID);
+        //when
+        transactionIndex.add(transaction);
+        transactionIndex.add(transaction);
+        //then
+        assertEquals(1, transactionIndex.size());
+        assertTrue(transactionIndex.contains(ID));
+        assertSame(transaction, transactionIndex.get(ID));
+        assertSame(output, transactionIndex.getOutput(new OutPoint(ID, 0)));
+        assertNull(transactionIndex.getOutput(new OutPoint(ID, 1)));
+        assertNull(transactionIndex.getOutput(new OutPoint(Hash256.fromHex(
+                "00000000000000000000000000000000000000000000000000000000000000ff"), 0)));
+    }
+
+    @Test
+    void addUnsealed() {
+        assertThrows(IllegalArgumentException.class, () -> transactionIndex.add(new Transaction()));
+    }
+}
@@ -1,22 +1,34 @@
 package com.javachain.service;
 
 import com.javachain.dto.Block;
+import com.javachain.dto.BlockHeader;
+import com.javachain.dto.MiningResult;
 import com.javachain.dto.OutgoingTransaction;
 import com.javachain.dto.Transaction;
 import com.javachain.dto.Wallet;
+import com.javachain.index.ChainState;
+import com.javachain.index.TransactionIndex;
+import com.javachain.util.EncodingUtility;
 import com.javachain.util.EncryptionUtility;
+import com.javachain.util.HashingUtility;
+import com.javachain.util.Target;
+import com.javachain.util.TransactionEncoder;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.function.Executable;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
-import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,12 +39,26 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class BlockServiceTest {
 
+    private static final String HASH = "00000000000000000000000000000000000000000000000000000000000000ff";
+
     @InjectMocks
     BlockService blockService;
     @Mock
     TransactionService transactionService;
     @Mock
     MiningService miningService;
+    @Spy
+    DifficultyService difficultyService = new DifficultyService();
+    @Spy
+    EncodingUtility encodingUtility = new EncodingUtility();
+    @Spy
+    HashingUtility hashingUtility = new HashingUtility(new EncodingUtility());
+    @Spy
+    TransactionEncoder transactionEncoder = new TransactionEncoder(hashingUtility);
+    @Spy
+    TransactionIndex transactionIndex = new TransactionIndex();
+    @Spy
+    ChainState chainState = new ChainState();
     @Mock
     Wallet wallet;
     @Mock
@@ -61,17 +87,12 @@ class BlockServiceTest {
         assertThrows(Exception.class, e);
 
         //given
-        EncryptionUtility eu = new EncryptionUtility();
-        PrivateKey privateKey = eu.generateKeyPair().getPrivate();
         OutgoingTransaction outTransaction = new OutgoingTransaction(wallet.address(), BigDecimal.ONE);
         Transaction transaction = new Transaction();
         transaction.setOutgoingTransactions(Collections.singletonList(outTransaction));
         //when
-        when(transactionService.send(wallet, true, wallet)).thenReturn(transaction);
-        when(miningService.mineNonce(anyString(), anyInt())).thenReturn("123");
-        when(miningService.mineDigest(anyString(), anyInt())).thenReturn("123");
-        when(wallet.getPrivateKey()).thenReturn(privateKey);
-        when(encUtil.sign(anyString(), eq(privateKey))).thenReturn("123");
+        when(transactionService.send(eq(wallet), eq(true), anyList())).thenReturn(transaction);
+        when(miningService.proofOfWork(any(BlockHeader.class), any(Target.class), any())).thenReturn(new MiningResult(123, HASH, 124, Duration.ZERO));
 
         //then
         Block block = blockService.mineBlock(wallet, new ArrayList<>(), null);
@@ -79,6 +100,32 @@ class BlockServiceTest {
         assertThat(block.getTransactionList()).isNotNull();
         assertThat(block.getTransactionList().size()).isEqualTo(1);
         assertThat(block.getNonce()).isEqualTo("123");
+        assertThat(block.getHash()).isEqualTo(HASH);
+        assertThat(block.getTarget()).isEqualTo(Target.INITIAL.getCompact());
+    }
+
+    @Test
+    void mineBlockValidatesTransactionsInParallel() throws Exception {
+        //given
+        blockService.setValidationThreads(4);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            transactions.add(new Transaction());
+        }
+        Transaction invalid = transactions.get(11);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        //when
+        when(transactionService.validateTransaction(any(Transaction.class), anyMap())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return invocation.getArgument(0) != invalid;
+        });
+        //then
+        try {
+            assertThrows(SecurityException.class, () -> blockService.mineBlock(wallet, transactions, null));
+            assertThat(threads).doesNotContain(Thread.currentThread().getName());
+        } finally {
+            blockService.shutdown();
+        }
     }
 
     @Test
@@ -114,8 +161,8 @@ class BlockServiceTest {
         transaction.setOutgoingTransactions(Collections.singletonList(outTransaction));
         Block block = spy(new Block(publicKey, Collections.singletonList(transaction), null));
         //when
-        when(block.getHash()).thenReturn("1123");
-        when(miningService.generatePrefix(2)).thenReturn("11");
+        block.setTarget(Target.INITIAL.getCompact());
+        block.setHash("00ff000000000000000000000000000000000000000000000000000000000000");
 
         //then
         assertFalse(blockService.verifyBlock(block));
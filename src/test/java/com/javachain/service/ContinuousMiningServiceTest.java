@@ -0,0 +1,174 @@
+package com.javachain.service;
+
+import com.javachain.dto.Block;
+import com.javachain.dto.Hash256;
+import com.javachain.dto.IncomingTransaction;
+import com.javachain.dto.OutPoint;
+import com.javachain.dto.Transaction;
+import com.javachain.dto.Wallet;
+import com.javachain.exceptions.MiningCancelledException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ContinuousMiningServiceTest {
+
+    @Mock
+    BlockService blockService;
+    @Mock
+    TransactionService transactionService;
+    @Mock
+    WalletService walletService;
+
+    ContinuousMiningService continuousMiningService;
+
+    @AfterEach
+    void stop() {
+        continuousMiningService.stop();
+    }
+
+    @Test
+    void minesOnTopOfItsOwnBlocks() throws Exception {
+        //given
+        continuousMiningService = new ContinuousMiningService(blockService, transactionService, walletService);
+        Wallet wallet = new Wallet();
+        Transaction transaction = new Transaction();
+        Block genesis = new Block(null, Collections.emptyList(), null);
+        CountDownLatch mined = new CountDownLatch(1);
+        //when
+        when(transactionService.validateTransaction(transaction)).thenReturn(true);
+        when(blockService.selectUnspent(null, Collections.singletonList(transaction)))
+                .thenReturn(Collections.singletonList(transaction));
+        when(blockService.mineBlock(eq(wallet), eq(Collections.singletonList(transaction)), isNull(), any()))
+                .thenReturn(genesis);
+        when(blockService.mineBlock(eq(wallet), eq(Collections.emptyList()), eq(genesis), any()))
+                .thenAnswer(invocation -> {
+                    mined.countDown();
+                    return awaitCancellation(invocation.getArgument(3));
+                });
+        continuousMiningService.submitTransaction(transaction);
+        continuousMiningService.start(wallet);
+        //then
+        assertTrue(mined.await(5, TimeUnit.SECONDS));
+        assertEquals(genesis, continuousMiningService.getTip());
+        assertEquals(genesis, wallet.getBlockchain());
+        assertEquals(1, continuousMiningService.getBlocksMined());
+        assertEquals(0, continuousMiningService.getPendingTransactions());
+        assertThrows(IllegalStateException.class, () -> continuousMiningService.start(wallet));
+        continuousMiningService.stop();
+        assertFalse(continuousMiningService.isRunning());
+    }
+
+    @Test
+    void keepsMiningWhenADoubleSpendIsPending() throws Exception {
+        //given
+        continuousMiningService = new ContinuousMiningService(blockService, transactionService, walletService);
+        Wallet wallet = new Wallet();
+        OutPoint outPoint = new OutPoint(Hash256.of(new byte[Hash256.LENGTH]), 0);
+        Transaction payment = new Transaction();
+        payment.setIncomingTransactions(Collections.singletonList(new IncomingTransaction(outPoint)));
+        Transaction doubleSpend = new Transaction();
+        doubleSpend.setIncomingTransactions(Collections.singletonList(new IncomingTransaction(outPoint)));
+        Block genesis = new Block(null, Collections.emptyList(), null);
+        CountDownLatch mined = new CountDownLatch(1);
+        //when
+        when(transactionService.validateTransaction(any(Transaction.class))).thenReturn(true);
+        when(blockService.selectUnspent(null, Arrays.asList(payment, doubleSpend)))
+                .thenReturn(Collections.singletonList(payment));
+        when(blockService.mineBlock(eq(wallet), eq(Collections.singletonList(payment)), isNull(), any()))
+                .thenReturn(genesis);
+        when(blockService.mineBlock(eq(wallet), eq(Collections.emptyList()), eq(genesis), any()))
+                .thenAnswer(invocation -> {
+                    mined.countDown();
+                    return awaitCancellation(invocation.getArgument(3));
+                });
+        continuousMiningService.submitTransaction(payment);
+        continuousMiningService.submitTransaction(doubleSpend);
+        continuousMiningService.start(wallet);
+        //then
+        assertTrue(mined.await(5, TimeUnit.SECONDS));
+        assertTrue(continuousMiningService.isRunning());
+        assertSame(wallet, continuousMiningService.getMinersWallet());
+        assertEquals(1, continuousMiningService.getBlocksMined());
+        assertEquals(0, continuousMiningService.getPendingTransactions());
+    }
+
+    @Test
+    void keepsMiningWhenABlockCantBeMined() throws Exception {
+        //given
+        continuousMiningService = new ContinuousMiningService(blockService, transactionService, walletService);
+        Wallet wallet = new Wallet();
+        Transaction transaction = new Transaction();
+        CountDownLatch mined = new CountDownLatch(1);
+        //when
+        when(transactionService.validateTransaction(transaction)).thenReturn(true);
+        when(blockService.selectUnspent(null, Collections.singletonList(transaction)))
+                .thenReturn(Collections.singletonList(transaction));
+        when(blockService.mineBlock(eq(wallet), eq(Collections.singletonList(transaction)), isNull(), any()))
+                .thenThrow(new SecurityException("Transaction spends an output that is not unspent"));
+        when(blockService.mineBlock(eq(wallet), eq(Collections.emptyList()), isNull(), any()))
+                .thenAnswer(invocation -> {
+                    mined.countDown();
+                    return awaitCancellation(invocation.getArgument(3));
+                });
+        continuousMiningService.submitTransaction(transaction);
+        continuousMiningService.start(wallet);
+        //then
+        assertTrue(mined.await(5, TimeUnit.SECONDS));
+        assertTrue(continuousMiningService.isRunning());
+        assertEquals(0, continuousMiningService.getPendingTransactions());
+    }
+
+    @Test
+    void newTipCancelsTheSearch() throws Exception {
+        //given
+        continuousMiningService = new ContinuousMiningService(blockService, transactionService, walletService);
+        Wallet wallet = new Wallet();
+        Block genesis = new Block(null, Collections.emptyList(), null);
+        Block synced = new Block(null, Collections.emptyList(), genesis);
+        CountDownLatch searching = new CountDownLatch(1);
+        CountDownLatch restarted = new CountDownLatch(1);
+        //when
+        when(blockService.mineBlock(eq(wallet), anyList(), isNull(), any())).thenAnswer(invocation -> {
+            searching.countDown();
+            return awaitCancellation(invocation.getArgument(3));
+        });
+        when(blockService.mineBlock(eq(wallet), anyList(), eq(synced), any())).thenAnswer(invocation -> {
+            restarted.countDown();
+            return awaitCancellation(invocation.getArgument(3));
+        });
+        continuousMiningService.start(wallet);
+        assertTrue(searching.await(5, TimeUnit.SECONDS));
+        continuousMiningService.onNewTip(new Wallet(), synced);
+        //then
+        assertTrue(restarted.await(5, TimeUnit.SECONDS));
+        assertEquals(synced, continuousMiningService.getTip());
+        assertEquals(synced, wallet.getBlockchain());
+        assertEquals(1, continuousMiningService.getCancelledSearches());
+        assertEquals(0, continuousMiningService.getBlocksMined());
+    }
+
+    private static Block awaitCancellation(BooleanSupplier cancelled) throws InterruptedException {
+        while (!cancelled.getAsBoolean()) {
+            Thread.sleep(1);
+        }
+        throw new MiningCancelledException("cancelled");
+    }
+
+}
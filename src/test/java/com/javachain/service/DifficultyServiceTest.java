@@ -0,0 +1,98 @@
+package com.javachain.service;
+
+import com.javachain.dto.Block;
+import com.javachain.util.Target;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DifficultyServiceTest {
+
+    final DifficultyService difficultyService = new DifficultyService();
+
+    @Test
+    void nextTargetKeepsTargetBetweenRetargets() {
+        //given
+        Block genesis = block(null, Target.INITIAL, Instant.EPOCH);
+        //when
+        //then
+        assertEquals(Target.INITIAL, difficultyService.nextTarget(null));
+        assertEquals(Target.INITIAL, difficultyService.nextTarget(genesis));
+    }
+
+    @Test
+    void nextTargetRetargets() {
+        //given
+        difficultyService.setRetargetInterval(4);
+        difficultyService.setTargetBlockTime(Duration.ofSeconds(10));
+        Target target = Target.fromCompact(0x1f00ffff);
+        //when
+        Block fast = chain(target, Duration.ofSeconds(5));
+        Block slow = chain(target, Duration.ofSeconds(20));
+        Block verySlow = chain(target, Duration.ofHours(1));
+        //then
+        assertEquals(Target.fromValue(target.getValue().divide(BigInteger.valueOf(2))), difficultyService.nextTarget(fast));
+        assertEquals(Target.fromValue(target.getValue().multiply(BigInteger.valueOf(2))), difficultyService.nextTarget(slow));
+        assertEquals(Target.fromValue(target.getValue().multiply(BigInteger.valueOf(4))), difficultyService.nextTarget(verySlow));
+        assertEquals(Target.LIMIT, difficultyService.nextTarget(chain(Target.LIMIT, Duration.ofSeconds(20))));
+    }
+
+    @Test
+    void timestampHasToBeAfterTheMedianTimePast() {
+        //given blocks 10 s apart, the last one dated back
+        Block block = null;
+        for (int i = 0; i < 12; i++) {
+            block = block(block, Target.INITIAL, Instant.EPOCH.plusSeconds(10 * i));
+        }
+        Block backdated = block(block, Target.INITIAL, Instant.EPOCH.plusSeconds(10));
+        //when
+        Instant medianTimePast = difficultyService.medianTimePast(block);
+        //then the median of the last 11 blocks (10 s to 110 s)
+        assertEquals(Instant.EPOCH.plusSeconds(60), medianTimePast);
+        assertEquals(medianTimePast.plusMillis(1), difficultyService.earliestTimestamp(block));
+        assertEquals(Instant.EPOCH, difficultyService.earliestTimestamp(null));
+        assertFalse(difficultyService.isTimestampValid(backdated));
+        assertFalse(difficultyService.isTimestampValid(block(block, Target.INITIAL, medianTimePast)));
+        assertTrue(difficultyService.isTimestampValid(block(block, Target.INITIAL, medianTimePast.plusMillis(1))));
+    }
+
+    @Test
+    void timestampMayNotBeFarInTheFuture() {
+        //given
+        difficultyService.setMaxFutureTime(Duration.ofMinutes(10));
+        Block genesis = block(null, Target.INITIAL, Instant.now());
+        //when
+        //then
+        assertTrue(difficultyService.isTimestampValid(genesis));
+        assertTrue(difficultyService.isTimestampValid(block(genesis, Target.INITIAL, Instant.now().plusSeconds(60))));
+        assertFalse(difficultyService.isTimestampValid(block(genesis, Target.INITIAL, Instant.now().plus(Duration.ofHours(1)))));
+    }
+
+    @Test
+    void setRetargetInterval() {
+        assertThrows(IllegalArgumentException.class, () -> difficultyService.setRetargetInterval(1));
+    }
+
+    /**
+     * Creates the blocks with heights 0 to 3, mined {@code blockTime} apart.
+     */
+    private Block chain(Target target, Duration blockTime) {
+        Block block = null;
+        for (int i = 0; i < 4; i++) {
+            block = block(block, target, Instant.EPOCH.plus(blockTime.multipliedBy(i)));
+        }
+        return block;
+    }
+
+    private Block block(Block previousBlock, Target target, Instant dateCreated) {
+        Block block = new Block(null, Collections.emptyList(), previousBlock, dateCreated);
+        block.setTarget(target.getCompact());
+        return block;
+    }
+
+}
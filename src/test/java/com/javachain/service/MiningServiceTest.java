@@ -1,12 +1,20 @@
 package com.javachain.service;
 
+import com.javachain.dto.BlockHeader;
+import com.javachain.dto.MiningResult;
+import com.javachain.exceptions.MiningCancelledException;
 import com.javachain.util.EncodingUtility;
 import com.javachain.util.HashingUtility;
+import com.javachain.util.Target;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MiningServiceTest {
 
@@ -40,6 +48,19 @@ class MiningServiceTest {
         assertEquals("9", miningService.mineNonce("VIH18FKQ4K", 1));
     }
 
+    @Test
+    void mineNonceInParallel() {
+        //given
+        //when
+        //then
+        assertEquals("23", miningService.mineNonce("42", 1, 4));
+        assertEquals("2272", miningService.mineNonce("42", 3, 4));
+        assertEquals("879", miningService.mineNonce("Z6AR67BMX7", 3, 3));
+        assertEquals("16671", miningService.mineNonce("2U6TP42RIM", 5, 8));
+        assertEquals("0", miningService.mineNonce("Q4XZ1QL2MI", 1, 2));
+        assertEquals(miningService.mineNonce("2U6TP42RIM", 5, 1), miningService.mineNonce("2U6TP42RIM", 5, 8));
+    }
+
     @Test
     void mineDigest() {
         //given
@@ -52,6 +73,75 @@ class MiningServiceTest {
         assertEquals("1cb173515d2331932002a13a28ad7b0bcee4ae71ae350b28b7600dcd34905530", miningService.mineDigest("VIH18FKQ4K", 1));
     }
 
+    @Test
+    void proofOfWork() {
+        //given
+        //when
+        MiningResult result = miningService.proofOfWork("42", 3);
+        //then
+        assertEquals(2272, result.getNonce());
+        assertEquals("111f1b7113e7c14a933421251b677a0f2493f65347976c64ada8cfc1e91229c0", result.getDigest());
+        assertTrue(result.getAttempts() >= 2273);
+        assertEquals(2273, miningService.proofOfWork("42", 3, 1).getAttempts());
+        assertEquals(result.getDigest(), miningService.proofOfWork("42", 3, 4).getDigest());
+        assertEquals(result.getNonce(), miningService.proofOfWork("42", 3, 4).getNonce());
+    }
+
+    @Test
+    void proofOfWorkWithTarget() {
+        //given
+        Target target = Target.fromCompact(0x1f00ffff);
+        //when
+        MiningResult result = miningService.proofOfWork("42", target);
+        //then
+        assertTrue(result.getDigest().startsWith("0000"));
+        assertTrue(target.isMetBy(result.getDigest()));
+        assertEquals(new HashingUtility(encodingUtility).hexHash("42" + result.getNonce()), result.getDigest());
+    }
+
+    @Test
+    void proofOfWorkWithHeader() {
+        //given
+        BlockHeader header = new BlockHeader(BlockHeader.VERSION, new byte[32], new byte[32], 1600000000000L, 0x1f00ffff, 0);
+        //when
+        MiningResult result = miningService.proofOfWork(header, Target.fromCompact(0x1f00ffff), () -> false);
+        //then
+        assertTrue(result.getDigest().startsWith("0000"));
+        assertEquals(encodingUtility.bytesToHex(new HashingUtility(encodingUtility).sha256(header.withNonce(result.getNonce()).encode())),
+                result.getDigest());
+    }
+
+    @Test
+    void proofOfWorkCancelled() {
+        //given
+        Target impossible = Target.fromCompact(0x01010000);
+        AtomicInteger polls = new AtomicInteger();
+        //when
+        //then
+        assertThrows(MiningCancelledException.class,
+                () -> miningService.proofOfWork("42", impossible, () -> polls.incrementAndGet() > 10));
+        assertTrue(polls.get() > 10);
+    }
+
+    @Test
+    void recordsMeters() {
+        //given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MiningService miningService = new MiningService(new HashingUtility(encodingUtility), encodingUtility, registry);
+        //when
+        miningService.proofOfWork("42", 3, 1);
+        miningService.proofOfWork("42", 1, 1);
+        assertThrows(MiningCancelledException.class,
+                () -> miningService.proofOfWork("42", Target.fromCompact(0x01010000), () -> true));
+        //then
+        assertTrue(registry.get("javachain.mining.hashes").functionCounter().count() >= 2273 + 24);
+        assertEquals(2, registry.get("javachain.mining.time").timer().count());
+        assertEquals(2273 + 24, registry.get("javachain.mining.attempts").summary().totalAmount());
+        assertEquals(1, registry.get("javachain.mining.cancelled").counter().count());
+        assertTrue(registry.get("javachain.mining.hashrate").gauge().value() > 0);
+        assertTrue(registry.get("javachain.mining.difficulty").gauge().value() > 1e9);
+    }
+
     @Test
     void generatePrefix() {
         EncodingUtility encodingUtility = new EncodingUtility();
@@ -1,30 +1,44 @@
 package com.javachain.service;
 
 import com.javachain.dto.*;
+import com.javachain.index.ChainState;
+import com.javachain.index.TransactionIndex;
+import com.javachain.util.EncodingUtility;
 import com.javachain.util.EncryptionUtility;
+import com.javachain.util.HashingUtility;
+import com.javachain.util.SignatureCache;
+import com.javachain.util.TransactionEncoder;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class TransactionServiceTest {
 
+    private static final Hash256 ID = Hash256.of(new byte[Hash256.LENGTH]);
+
     @InjectMocks
     TransactionService transactionService;
     @Mock
@@ -38,9 +52,17 @@ class TransactionServiceTest {
     @Mock
     OutgoingTransaction outTransaction;
     @Mock
-    IncomingTransaction inTransaction;
-    @Mock
     EncryptionUtility encryptionUtility;
+    @Spy
+    TransactionIndex transactionIndex = new TransactionIndex();
+    @Spy
+    SignatureCache signatureCache = new SignatureCache(1000);
+    @Spy
+    ChainState chainState = new ChainState();
+    @Spy
+    HashingUtility hashingUtility = new HashingUtility(new EncodingUtility());
+    @Spy
+    TransactionEncoder transactionEncoder = new TransactionEncoder(new HashingUtility(new EncodingUtility()));
 
 
     @Test
@@ -50,7 +72,7 @@ class TransactionServiceTest {
         PrivateKey privateKey = eu.generateKeyPair().getPrivate();
         //when
         when(senderWallet.getPrivateKey()).thenReturn(privateKey);
-        when(encryptionUtility.sign(anyString(), eq(privateKey))).thenReturn("123");
+        when(encryptionUtility.sign(any(byte[].class), eq(privateKey))).thenReturn("123");
         //then
         Transaction transaction = transactionService.send(senderWallet, false, receiversWallet);
         assertNotNull(transaction);
@@ -58,19 +80,49 @@ class TransactionServiceTest {
     }
 
     @Test
-    void getPreviousInTransactions() throws Exception {
+    void sendSelectsUnspentOutputs() throws Exception {
         //given
         EncryptionUtility eu = new EncryptionUtility();
         PublicKey publicKey = eu.generateKeyPair().getPublic();
+        PrivateKey privateKey = eu.generateKeyPair().getPrivate();
+        Transaction coinbase = new Transaction();
+        coinbase.setOutgoingTransactions(Arrays.asList(new OutgoingTransaction(publicKey, new BigDecimal(3)),
+                new OutgoingTransaction(publicKey, BigDecimal.TEN), new OutgoingTransaction(null, BigDecimal.TEN)));
+        coinbase.seal(ID);
+        Block genesis = new Block(publicKey, Collections.singletonList(coinbase), null);
+        genesis.seal(ID);
         //when
-        when(senderWallet.getBlockchain()).thenReturn(block);
-        when(block.getTransactionList()).thenReturn(Collections.singletonList(transaction));
-        when(transaction.getOutgoingTransactions()).thenReturn(Collections.singletonList(outTransaction));
-        when(outTransaction.getRecipientAddress()).thenReturn(publicKey);
-        when(senderWallet.getPublicKey()).thenReturn(publicKey);
+        when(senderWallet.getBlockchain()).thenReturn(genesis);
+        when(senderWallet.address()).thenReturn(publicKey);
+        when(senderWallet.getPrivateKey()).thenReturn(privateKey);
+        when(receiversWallet.getAmountToBeSent()).thenReturn(new BigDecimal(4));
+        when(encryptionUtility.sign(any(byte[].class), eq(privateKey))).thenReturn("123");
+        Transaction transaction = transactionService.send(senderWallet, false, receiversWallet);
         //then
-        List<IncomingTransaction> inTransactions = transactionService.getPreviousInTransactions(senderWallet);
+        List<IncomingTransaction> inTransactions = transaction.getIncomingTransactions();
         assertEquals(1, inTransactions.size());
+        assertEquals(new OutPoint(ID, 1), inTransactions.get(0).getOutPoint());
+        assertEquals(2, transaction.getOutgoingTransactions().size());
+        assertEquals(publicKey, transaction.getOutgoingTransactions().get(1).getRecipientAddress());
+        assertEquals(new BigDecimal(6), transaction.getOutgoingTransactions().get(1).getAmount());
+        assertEquals(2, transactionService.getUnspentOutputs(senderWallet).size());
+    }
+
+    @Test
+    void sendRequiresCoveredAmount() throws Exception {
+        //given
+        PublicKey publicKey = new EncryptionUtility().generateKeyPair().getPublic();
+        Transaction coinbase = new Transaction();
+        coinbase.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(publicKey, new BigDecimal(3))));
+        coinbase.seal(ID);
+        Block genesis = new Block(publicKey, Collections.singletonList(coinbase), null);
+        genesis.seal(ID);
+        //when
+        when(senderWallet.getBlockchain()).thenReturn(genesis);
+        when(senderWallet.address()).thenReturn(publicKey);
+        when(receiversWallet.getAmountToBeSent()).thenReturn(new BigDecimal(4));
+        //then
+        assertThrows(IllegalStateException.class, () -> transactionService.send(senderWallet, false, receiversWallet));
     }
 
     @Test
@@ -81,12 +133,89 @@ class TransactionServiceTest {
         assertTrue(transactionService.validateTransaction(transaction));
     }
 
+    @Test
+    void validateTransactionWithoutInputs() throws Exception {
+        //when
+        when(transaction.getIncomingTransactions()).thenReturn(Collections.emptyList());
+        //then
+        assertFalse(transactionService.validateTransaction(transaction));
+    }
+
     @Test
     void validateTransaction1() throws Exception {
         //given
+        Transaction parent = new Transaction();
+        parent.setOutgoingTransactions(Collections.singletonList(outTransaction));
+        parent.seal(ID);
+        transactionIndex.add(parent);
+        //when
+        when(transaction.getIncomingTransactions()).thenReturn(Collections.singletonList(new IncomingTransaction(ID, 0)));
+        when(transaction.getDateCreated()).thenReturn(Instant.now());
+        //then
+        assertFalse(transactionService.validateTransaction(transaction));
+    }
+
+    @Test
+    void validateTransactionUsesSignatureCache() throws Exception {
+        //given
+        PublicKey owner = new EncryptionUtility().generateKeyPair().getPublic();
+        Transaction parent = new Transaction();
+        parent.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(owner, BigDecimal.TEN)));
+        parent.seal(ID);
+        transactionIndex.add(parent);
+        Transaction transaction = new Transaction();
+        transaction.setIncomingTransactions(Collections.singletonList(new IncomingTransaction(ID, 0)));
+        transaction.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(owner, BigDecimal.ONE)));
+        transaction.setSignature("c2lnbmF0dXJl");
+        //when
+        when(encryptionUtility.verifySignature(any(byte[].class), eq("c2lnbmF0dXJl"), eq(owner))).thenReturn(true);
+        //then
+        assertTrue(transactionService.validateTransaction(transaction));
+        assertTrue(transactionService.validateTransaction(transaction));
+        verify(encryptionUtility, times(1)).verifySignature(any(byte[].class), eq("c2lnbmF0dXJl"), eq(owner));
+        assertEquals(1, signatureCache.getHits());
+
+        //when the transaction changes
+        transaction.getOutgoingTransactions().get(0).setAmount(BigDecimal.TEN);
+        //then
+        assertTrue(transactionService.validateTransaction(transaction));
+        verify(encryptionUtility, times(2)).verifySignature(any(byte[].class), eq("c2lnbmF0dXJl"), eq(owner));
+    }
+
+    @Test
+    void validateTransactionPayingMoreThanItsInputs() throws Exception {
+        //given a signed transaction spending 1 unit
+        PublicKey owner = new EncryptionUtility().generateKeyPair().getPublic();
+        Transaction parent = new Transaction();
+        parent.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(owner, 1)));
+        parent.seal(ID);
+        transactionIndex.add(parent);
+        Transaction transaction = new Transaction();
+        transaction.setIncomingTransactions(Collections.singletonList(new IncomingTransaction(ID, 0)));
+        transaction.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(owner, 1_000_000)));
+        transaction.setSignature("c2lnbmF0dXJl");
+        //when
+        when(encryptionUtility.verifySignature(any(byte[].class), eq("c2lnbmF0dXJl"), eq(owner))).thenReturn(true);
+        //then
+        assertFalse(transactionService.validateTransaction(transaction));
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.fee(transaction.getIncomingTransactions(), transaction.getOutgoingTransactions()));
+
+        //when the outputs add up with a negative one
+        transaction.setOutgoingTransactions(Arrays.asList(new OutgoingTransaction(owner, 2), new OutgoingTransaction(owner, -1)));
+        //then
+        assertFalse(transactionService.validateTransaction(transaction));
+
+        //when it pays what it spends
+        transaction.setOutgoingTransactions(Collections.singletonList(new OutgoingTransaction(owner, 1)));
+        //then
+        assertTrue(transactionService.validateTransaction(transaction));
+    }
+
+    @Test
+    void validateTransactionSpendingUnknownOutput() throws Exception {
         //when
-        when(transaction.getIncomingTransactions()).thenReturn(Collections.singletonList(inTransaction));
-        when(inTransaction.getRecipient()).thenReturn(outTransaction);
+        when(transaction.getIncomingTransactions()).thenReturn(Collections.singletonList(new IncomingTransaction(ID, 0)));
         //then
         assertFalse(transactionService.validateTransaction(transaction));
     }
@@ -95,7 +224,7 @@ class TransactionServiceTest {
 //TODO
     void computeTotalFee() {
         //when
-        when(transaction.getFee()).thenReturn(BigDecimal.ONE);
+        when(transaction.getFeeUnits()).thenReturn(Amount.coins(1));
         //then
         assertEquals(BigDecimal.ONE, transactionService.computeTotalFee(Collections.singletonList(transaction)));
     }
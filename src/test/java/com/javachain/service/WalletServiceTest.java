@@ -3,6 +3,7 @@ package com.javachain.service;
 import com.javachain.dto.Block;
 import com.javachain.dto.Wallet;
 import com.javachain.util.EncryptionUtility;
+import com.javachain.util.KeyPairPool;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -11,6 +12,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -30,6 +34,8 @@ class WalletServiceTest {
     Block block;
     @Mock
     BlockService blockService;
+    @Mock
+    KeyPairPool keyPairPool;
 
     @Test
     void testWallet() throws Exception {
@@ -49,19 +55,32 @@ class WalletServiceTest {
     void syncBlockchain() throws Exception {
         //given
         //when
-        when(blockService.verifyBlock(block)).thenReturn(true);
+        when(blockService.verifyChain(block)).thenReturn(true);
         when(wallet.getBlockchain()).thenReturn(block);
         when(blockService.isNewBlockBigger(wallet.getBlockchain(), block)).thenReturn(true);
         //then
         assertEquals(walletService.syncBlockchain(wallet, block).getBlockchain(), block);
     }
 
+    @Test
+    void syncBlockchainNotifiesTipListeners() throws Exception {
+        //given
+        List<Block> tips = new ArrayList<>();
+        walletService.addTipListener((w, tip) -> tips.add(tip));
+        //when
+        when(blockService.verifyChain(block)).thenReturn(true);
+        when(blockService.isNewBlockBigger(wallet.getBlockchain(), block)).thenReturn(true);
+        walletService.syncBlockchain(wallet, block);
+        //then
+        assertEquals(Collections.singletonList(block), tips);
+    }
+
     @Test
     void generateNewWallet() throws Exception {
         //given
         KeyPair keyPair = encryptionUtility.generateKeyPair();
         //when
-        when(encUtil.generateKeyPair()).thenReturn(keyPair);
+        when(keyPairPool.take()).thenReturn(keyPair);
         //then
         assertNotNull(walletService.generateNewWallet("patriks"));
         assertEquals(walletService.generateNewWallet("patriks").getPublicKey(), keyPair.getPublic());
@@ -0,0 +1,47 @@
+package com.javachain.util;
+
+import com.javachain.dto.Amount;
+import com.javachain.dto.Hash256;
+import com.javachain.dto.OutPoint;
+import com.javachain.dto.OutgoingTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoinSelectionTest {
+
+    private static final Hash256 ID = Hash256.of(new byte[Hash256.LENGTH]);
+
+    private final Map<OutPoint, OutgoingTransaction> unspent = new HashMap<>();
+
+    @Test
+    void largestFirst() {
+        //given
+        unspent.put(new OutPoint(ID, 0), new OutgoingTransaction(null, new BigDecimal(2)));
+        unspent.put(new OutPoint(ID, 1), new OutgoingTransaction(null, new BigDecimal(7)));
+        unspent.put(new OutPoint(ID, 2), new OutgoingTransaction(null, new BigDecimal(5)));
+        //when
+        List<OutPoint> selected = CoinSelection.largestFirst(unspent, Amount.coins(9));
+        //then
+        assertEquals(Arrays.asList(new OutPoint(ID, 1), new OutPoint(ID, 2)), selected);
+        assertEquals(Arrays.asList(new OutPoint(ID, 1)), CoinSelection.largestFirst(unspent, Amount.coins(7)));
+        assertTrue(CoinSelection.largestFirst(unspent, 0).isEmpty());
+    }
+
+    @Test
+    void selectsAllWhenNotCovered() {
+        //given
+        unspent.put(new OutPoint(ID, 0), new OutgoingTransaction(null, BigDecimal.ONE));
+        unspent.put(new OutPoint(ID, 1), new OutgoingTransaction(null, BigDecimal.ONE));
+        //when
+        List<OutPoint> selected = CoinSelection.largestFirst(unspent, Amount.coins(10));
+        //then ties are taken in out point order
+        assertEquals(Arrays.asList(new OutPoint(ID, 0), new OutPoint(ID, 1)), selected);
+    }
+}
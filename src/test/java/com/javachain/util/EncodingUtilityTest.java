@@ -2,7 +2,9 @@ package com.javachain.util;
 
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class EncodingUtilityTest {
 
@@ -10,26 +12,60 @@ class EncodingUtilityTest {
     private final EncodingUtility encodingUtility = new EncodingUtility();
 
     @Test
-    void bytesToHexJ5() {
+    void bytesToHex() {
+        assertEquals("0b1621", encodingUtility.bytesToHex(bytes));
+        assertEquals("313233", encodingUtility.bytesToHex("123".getBytes()));
+        assertEquals("\u000B\u0016!", encodingUtility.hexToString(encodingUtility.bytesToHex(bytes)));
+        assertEquals("test", encodingUtility.hexToString(encodingUtility.bytesToHex("test".getBytes())));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void deprecatedAliasesOfBytesToHex() {
+        assertEquals(encodingUtility.bytesToHex(bytes), encodingUtility.bytesToHexJ5(bytes));
+        assertEquals(encodingUtility.bytesToHex(bytes), encodingUtility.bytesToHexJ11(bytes));
         assertEquals("313233", encodingUtility.bytesToHexJ5("123".getBytes()));
-        assertEquals("test", encodingUtility.hexToString(encodingUtility.bytesToHexJ5("test".getBytes())));
     }
 
     @Test
-    void bytesToHexJ11() {
-        assertEquals("\u000B\u0016!", encodingUtility.hexToString(encodingUtility.bytesToHexJ11(bytes)));
-        assertEquals("test", encodingUtility.hexToString(encodingUtility.bytesToHexJ11("test".getBytes())));
+    void hexToString() {
+        assertEquals("test", encodingUtility.hexToString("74657374"));
+        assertEquals("a longer test message", encodingUtility.hexToString(encodingUtility.bytesToHex("a longer test message".getBytes())));
     }
 
     @Test
-    void bytesToHex() {
-        assertEquals("0b1621", encodingUtility.bytesToHex(bytes));
-        assertEquals("test", encodingUtility.hexToString(encodingUtility.bytesToHex("test".getBytes())));
+    void hexToBytes() {
+        byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+        }
+        assertArrayEquals(all, encodingUtility.hexToBytes(encodingUtility.bytesToHex(all)));
+        assertArrayEquals(all, encodingUtility.hexToBytes(encodingUtility.bytesToHex(all).toUpperCase()));
+        assertArrayEquals(new byte[]{0x01, 0x23}, encodingUtility.hexToBytes("123"));
+        assertArrayEquals(new byte[0], encodingUtility.hexToBytes(""));
+        assertThrows(IllegalArgumentException.class, () -> encodingUtility.hexToBytes("0g"));
+        assertThrows(IllegalArgumentException.class, () -> encodingUtility.hexToBytes("0\u00e9"));
     }
 
     @Test
-    void hexToString() {
-        assertEquals("test", encodingUtility.hexToString("74657374"));
+    void encodeAndDecodeInPlace() {
+        //given
+        char[] hex = new char[6];
+        char[] part = new char[6];
+        byte[] decoded = new byte[5];
+        ByteBuffer buffer = ByteBuffer.allocate(3);
+        //when
+        encodingUtility.encodeHex(bytes, 1, 2, part, 1);
+        int written = encodingUtility.encodeHex(ByteBuffer.wrap(bytes), hex, 0);
+        //then
+        assertEquals(6, written);
+        assertEquals("0b1621", new String(hex));
+        assertEquals("\u00001621\u0000", new String(part));
+        assertEquals(3, encodingUtility.decodeHex("xx0b1621", 2, 6, decoded, 1));
+        assertArrayEquals(new byte[]{0, 11, 22, 33, 0}, decoded);
+        encodingUtility.decodeHex("0B1621", buffer);
+        assertArrayEquals(bytes, buffer.array());
+        assertThrows(IllegalArgumentException.class, () -> encodingUtility.decodeHex("123", ByteBuffer.allocate(2)));
     }
 
 
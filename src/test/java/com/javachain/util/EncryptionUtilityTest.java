@@ -1,17 +1,32 @@
 package com.javachain.util;
 
 import com.javachain.dto.Wallet;
+import com.javachain.index.ChainState;
+import com.javachain.index.TransactionIndex;
 import com.javachain.service.BlockService;
+import com.javachain.service.DifficultyService;
 import com.javachain.service.MiningService;
 import com.javachain.service.TransactionService;
 import com.javachain.service.WalletService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class EncryptionUtilityTest {
 
@@ -20,10 +35,15 @@ class EncryptionUtilityTest {
     private final EncodingUtility encodingUtility = new EncodingUtility();
     final HashingUtility hashingUtility = new HashingUtility(encodingUtility);
     final MiningService miningService = new MiningService(hashingUtility, encodingUtility);
-    final TransactionService transactionService = new TransactionService(encryptionUtility, hashingUtility, miningService);
-    final BlockService blockService = new BlockService(encryptionUtility, transactionService, hashingUtility, miningService);
+    final TransactionEncoder transactionEncoder = new TransactionEncoder(hashingUtility);
+    final TransactionIndex transactionIndex = new TransactionIndex();
+    final ChainState chainState = new ChainState();
+    final TransactionService transactionService = new TransactionService(encryptionUtility, hashingUtility, miningService,
+            transactionEncoder, transactionIndex, new SignatureCache(1000), chainState);
+    final BlockService blockService = new BlockService(encryptionUtility, transactionService, hashingUtility, miningService,
+            new DifficultyService(), encodingUtility, transactionEncoder, transactionIndex, chainState);
     private final WalletService walletService = new WalletService(encryptionUtility, hashingUtility, miningService,
-            transactionService, blockService);
+            transactionService, blockService, new KeyPairPool(encryptionUtility, 0));
     private Wallet patriksWallet;
 
     @BeforeEach
@@ -87,6 +107,72 @@ class EncryptionUtilityTest {
         assertEquals(secondTimeDecryption, message);
     }
 
+    @Test
+    void signAndVerifyBytes() throws Exception {
+        //given
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        //when
+        byte[] signature = encryptionUtility.signBytes(bytes, patriksWallet.getPrivateKey());
+        //then
+        assertEquals(256, signature.length);
+        assertEquals(Base64.getEncoder().encodeToString(signature), encryptionUtility.sign(bytes, patriksWallet.getPrivateKey()));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(encryptionUtility.verifySignature(bytes, signature, patriksWallet.getPublicKey()));
+            assertFalse(encryptionUtility.verifySignature("test1".getBytes(StandardCharsets.UTF_8), signature, patriksWallet.getPublicKey()));
+        }
+    }
+
+    @Test
+    void verifierIsReusedPerPublicKey() throws Exception {
+        //given
+        PublicKey publicKey = patriksWallet.getPublicKey();
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        encryptionUtility.verifySignature(bytes, encryptionUtility.signBytes(bytes, patriksWallet.getPrivateKey()), publicKey);
+        //when
+        Signature verifier = CryptoEngines.verifier(publicKey);
+        //then
+        assertSame(verifier, CryptoEngines.verifier(publicKey));
+        assertThrows(SignatureException.class, () -> encryptionUtility.verifySignature(bytes, new byte[3], publicKey));
+        assertNotSame(verifier, CryptoEngines.verifier(publicKey));
+        assertTrue(encryptionUtility.verifySignature(bytes, encryptionUtility.signBytes(bytes, patriksWallet.getPrivateKey()), publicKey));
+    }
+
+    @Test
+    void verifyOnManyThreads() throws Exception {
+        //given
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        byte[] signature = encryptionUtility.signBytes(bytes, patriksWallet.getPrivateKey());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        //when
+        try {
+            for (int i = 0; i < 40; i++) {
+                byte[] signed = i % 2 == 0 ? bytes : "test1".getBytes(StandardCharsets.UTF_8);
+                results.add(executor.submit(() -> encryptionUtility.verifySignature(signed, signature, patriksWallet.getPublicKey())));
+            }
+            //then
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0, results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void encryptBytes() throws Exception {
+        //given
+        KeyPair keyPair = encryptionUtility.generateKeyPair();
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        //when
+        byte[] cipherText = encryptionUtility.encrypt(bytes, keyPair.getPublic());
+        //then
+        assertEquals(256, cipherText.length);
+        assertArrayEquals(bytes, encryptionUtility.decrypt(cipherText, keyPair.getPrivate()));
+        assertThrows(InvalidKeyException.class,
+                () -> encryptionUtility.encrypt(bytes, encryptionUtility.generateKeyPair(KeyType.EC_P256).getPublic()));
+    }
+
     @Test
     void generateHexStringKeyPair() throws Exception {
         KeyPair keyPair1 = encryptionUtility.generateKeyPair();
@@ -104,4 +190,43 @@ class EncryptionUtilityTest {
         assertEquals("RSA", keyPair.getPublic().getAlgorithm());
     }
 
+    @Test
+    void signWithEcKeys() throws Exception {
+        //given
+        KeyPair keyPair = encryptionUtility.generateKeyPair(KeyType.EC_P256);
+        //when
+        String signature = encryptionUtility.sign(message, keyPair.getPrivate());
+        //then
+        assertEquals(KeyType.EC_P256, KeyType.forKey(keyPair.getPublic()));
+        assertEquals(91, keyPair.getPublic().getEncoded().length);
+        assertTrue(Base64.getDecoder().decode(signature).length <= 72);
+        assertTrue(encryptionUtility.verifySignature(message, signature, keyPair.getPublic()));
+        assertFalse(encryptionUtility.verifySignature("test1", signature, keyPair.getPublic()));
+    }
+
+    @Test
+    void signWithEd25519Keys() throws Exception {
+        assumeTrue(KeyType.ED25519.isSupported(), "Ed25519 needs JDK 15 or newer");
+        //given
+        KeyPair keyPair = encryptionUtility.generateKeyPair(KeyType.ED25519);
+        //when
+        String signature = encryptionUtility.sign(message, keyPair.getPrivate());
+        //then
+        assertEquals(KeyType.ED25519, KeyType.forKey(keyPair.getPublic()));
+        assertEquals(44, keyPair.getPublic().getEncoded().length);
+        assertEquals(64, Base64.getDecoder().decode(signature).length);
+        assertTrue(encryptionUtility.verifySignature(message, signature, keyPair.getPublic()));
+        assertFalse(encryptionUtility.verifySignature("test1", signature, keyPair.getPublic()));
+    }
+
+    @Test
+    void keyType() {
+        //when
+        encryptionUtility.setKeyType("EC-P256");
+        //then
+        assertEquals(KeyType.EC_P256, encryptionUtility.getKeyType());
+        assertEquals(KeyType.RSA, KeyType.forName("rsa"));
+        assertThrows(IllegalArgumentException.class, () -> KeyType.forName("dsa"));
+    }
+
 }
@@ -0,0 +1,100 @@
+package com.javachain.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvelopeCipherTest {
+
+    private static final int TAG_LENGTH = 16;
+
+    private final EncryptionUtility encryptionUtility = new EncryptionUtility();
+
+    private final KeyPair keyPair;
+
+    EnvelopeCipherTest() throws Exception {
+        keyPair = encryptionUtility.generateKeyPair();
+    }
+
+    @Test
+    void roundTrip() throws Exception {
+        int segment = EnvelopeCipher.SEGMENT_SIZE;
+        for (int size : new int[]{0, 1, segment - 1, segment, segment + 1, 3 * segment + 17}) {
+            //given
+            byte[] plainText = randomBytes(size);
+            //when
+            byte[] envelope = encrypt(plainText);
+            //then
+            int segments = Math.max(1, (size + segment - 1) / segment);
+            assertEquals(4 + 1 + 4 + 2 + 256 + 8 + segments * (1 + 4 + TAG_LENGTH) + size, envelope.length);
+            assertArrayEquals(plainText, decrypt(envelope));
+        }
+    }
+
+    @Test
+    void sameDataEncryptsDifferently() throws Exception {
+        //given
+        byte[] plainText = randomBytes(100);
+        //then
+        assertFalse(Arrays.equals(encrypt(plainText), encrypt(plainText)));
+    }
+
+    @Test
+    void modifiedEnvelopeFails() throws Exception {
+        //given
+        byte[] envelope = encrypt(randomBytes(2 * EnvelopeCipher.SEGMENT_SIZE + 10));
+        //when
+        envelope[envelope.length - 100] ^= 1;
+        //then
+        assertThrows(AEADBadTagException.class, () -> decrypt(envelope));
+    }
+
+    @Test
+    void truncatedEnvelopeFails() throws Exception {
+        //given
+        byte[] envelope = encrypt(randomBytes(2 * EnvelopeCipher.SEGMENT_SIZE + 10));
+        int lastSegment = 1 + 4 + 10 + TAG_LENGTH;
+        //when
+        byte[] withoutLastSegment = Arrays.copyOf(envelope, envelope.length - lastSegment);
+        //then
+        assertThrows(AEADBadTagException.class, () -> decrypt(withoutLastSegment));
+    }
+
+    @Test
+    void wrongKeyFails() throws Exception {
+        //given
+        byte[] envelope = encrypt(randomBytes(10));
+        KeyPair otherKeyPair = encryptionUtility.generateKeyPair();
+        //then
+        assertThrows(GeneralSecurityException.class, () ->
+                encryptionUtility.decrypt(new ByteArrayInputStream(envelope), new ByteArrayOutputStream(), otherKeyPair.getPrivate()));
+        assertThrows(IOException.class, () -> decrypt(randomBytes(300)));
+    }
+
+    private byte[] encrypt(byte[] plainText) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encryptionUtility.encrypt(new ByteArrayInputStream(plainText), out, keyPair.getPublic());
+        return out.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] envelope) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encryptionUtility.decrypt(new ByteArrayInputStream(envelope), out, keyPair.getPrivate());
+        return out.toByteArray();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,57 @@
+package com.javachain.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashFunctionTest {
+
+    private final EncodingUtility encodingUtility = new EncodingUtility();
+
+    private final byte[] abc = "abc".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void forName() {
+        assertTrue(HashFunction.forName("sha256") instanceof Sha256HashFunction);
+        assertTrue(HashFunction.forName("SHA256D") instanceof DoubleSha256HashFunction);
+        assertTrue(HashFunction.forName("sha3-256") instanceof Sha3HashFunction);
+        assertThrows(IllegalArgumentException.class, () -> HashFunction.forName("md5"));
+    }
+
+    @Test
+    void hash() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                encodingUtility.bytesToHex(new Sha256HashFunction().hash(abc)));
+        assertEquals("4f8b42c22dd3729b519ba6f68d2da7cc5b2d606d05daed5ad5128cc03e6c6358",
+                encodingUtility.bytesToHex(new DoubleSha256HashFunction().hash(abc)));
+        assertEquals("3a985da74fe225b2045c172d6bd390bd855f086e3e9d525b46bfe24511431532",
+                encodingUtility.bytesToHex(new Sha3HashFunction().hash(abc)));
+    }
+
+    @Test
+    void doubleSha256Clone() throws Exception {
+        //given
+        HashFunction hashFunction = new DoubleSha256HashFunction();
+        MessageDigest midstate = hashFunction.newMessageDigest();
+        midstate.update(abc, 0, 2);
+        //when
+        MessageDigest copy = (MessageDigest) midstate.clone();
+        copy.update(abc, 2, 1);
+        byte[] digest = new byte[hashFunction.getDigestLength()];
+        copy.digest(digest, 0, digest.length);
+        //then
+        assertArrayEquals(hashFunction.hash(abc), digest);
+        midstate.update((byte) 'c');
+        assertArrayEquals(hashFunction.hash(abc), midstate.digest());
+    }
+
+    @Test
+    void hexHashUsesTheChainHashFunction() {
+        assertEquals("3a985da74fe225b2045c172d6bd390bd855f086e3e9d525b46bfe24511431532",
+                new HashingUtility(encodingUtility, "sha3-256").hexHash("abc"));
+    }
+
+}
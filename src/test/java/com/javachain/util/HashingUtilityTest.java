@@ -2,16 +2,25 @@ package com.javachain.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 class HashingUtilityTest {
 
     private final EncodingUtility encodingUtility = new EncodingUtility();
     private final HashingUtility hashingUtility = new HashingUtility(encodingUtility);
 
+    private static final String EXPECTED_SHA256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
     @Test
     void getMD5() {
         assertEquals("098F6BCD4621D373CADE4E832627B4F6", hashingUtility.getMD5("test"));
@@ -31,7 +40,49 @@ class HashingUtilityTest {
     void sha256() {
         assertNotNull(hashingUtility.sha256("test"));
         assertEquals("龆킁行絥騯\uEAA0앚퀕ꎿ伛⬋般텝氕냰ਈ", new String(hashingUtility.sha256("test"), StandardCharsets.UTF_16));
-        assertEquals("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08", encodingUtility.bytesToHex(hashingUtility.sha256("test")));
+        assertEquals(EXPECTED_SHA256, encodingUtility.bytesToHex(hashingUtility.sha256("test")));
+    }
+
+    @Test
+    void sha256Overloads() {
+        byte[] test = "test".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(8).put(test);
+        buffer.flip();
+        assertArrayEquals(hashingUtility.sha256("test"), hashingUtility.sha256(test));
+        assertArrayEquals(hashingUtility.sha256("test"), hashingUtility.sha256(buffer));
+        assertFalse(buffer.hasRemaining());
+        assertArrayEquals(hashingUtility.sha256("test"), hashingUtility.hash(ByteBuffer.wrap(test)));
+        assertArrayEquals(hashingUtility.sha256("test"), hashingUtility.hash(test));
+    }
+
+    @Test
+    void hashesConcurrently() throws Exception {
+        //given
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            tasks.add(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String message = "message" + (offset * 2000 + i);
+                    if (!EXPECTED_SHA256.equals(encodingUtility.bytesToHex(hashingUtility.sha256("test")))
+                            || !hashingUtility.getMD5(message).equals(hashingUtility.getMD5(message))
+                            || !Arrays.equals(hashingUtility.hash(message.getBytes(StandardCharsets.UTF_8)),
+                            hashingUtility.sha256(message))) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+        //when
+        List<Future<Boolean>> results = executor.invokeAll(tasks);
+        executor.shutdown();
+        //then
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
     }
 
     @Test
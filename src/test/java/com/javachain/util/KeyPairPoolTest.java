@@ -0,0 +1,79 @@
+package com.javachain.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyPairPoolTest {
+
+    private final EncryptionUtility encryptionUtility = new EncryptionUtility();
+
+    private KeyPairPool keyPairPool;
+
+    @AfterEach
+    void stopPool() {
+        if (keyPairPool != null) {
+            keyPairPool.stop();
+        }
+    }
+
+    @Test
+    void generatesOnDemandWhenEmpty() throws Exception {
+        //given
+        keyPairPool = new KeyPairPool(encryptionUtility, 0);
+        keyPairPool.start();
+        //when
+        KeyPair keyPair = keyPairPool.take();
+        //then
+        assertEquals("RSA", keyPair.getPublic().getAlgorithm());
+        assertEquals(0, keyPairPool.size());
+        assertEquals(1, keyPairPool.getGenerated());
+        assertEquals(0, keyPairPool.getPooled());
+    }
+
+    @Test
+    void takesPreGeneratedPairs() throws Exception {
+        //given
+        encryptionUtility.setKeyType("ec-p256");
+        keyPairPool = new KeyPairPool(encryptionUtility, 4);
+        //when
+        keyPairPool.start();
+        awaitFull();
+        KeyPair first = keyPairPool.take();
+        KeyPair second = keyPairPool.take();
+        //then
+        assertNotEquals(first.getPublic(), second.getPublic());
+        assertEquals(KeyType.EC_P256, KeyType.forKey(first.getPublic()));
+        assertEquals(2, keyPairPool.getPooled());
+        assertEquals(0, keyPairPool.getGenerated());
+        awaitFull();
+    }
+
+    @Test
+    void dropsPairsOfAnotherKeyType() throws Exception {
+        //given
+        encryptionUtility.setKeyType("ec-p256");
+        keyPairPool = new KeyPairPool(encryptionUtility, 2);
+        keyPairPool.start();
+        awaitFull();
+        keyPairPool.stop();
+        //when
+        encryptionUtility.setKeyType("rsa");
+        KeyPair keyPair = keyPairPool.take();
+        //then
+        assertEquals(KeyType.RSA, KeyType.forKey(keyPair.getPublic()));
+        assertEquals(0, keyPairPool.size());
+        assertEquals(1, keyPairPool.getGenerated());
+    }
+
+    private void awaitFull() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (keyPairPool.size() < keyPairPool.getCapacity()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Pool was not filled in time");
+            Thread.sleep(10);
+        }
+    }
+}
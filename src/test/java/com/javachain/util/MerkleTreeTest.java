@@ -0,0 +1,83 @@
+package com.javachain.util;
+
+import com.javachain.dto.MerkleProof;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerkleTreeTest {
+
+    private final HashFunction hashFunction = new Sha256HashFunction();
+
+    @Test
+    void root() {
+        //given
+        List<byte[]> leaves = leaves(3);
+        byte[] ab = hashFunction.hash(concat(leaves.get(0), leaves.get(1)));
+        byte[] cc = hashFunction.hash(concat(leaves.get(2), leaves.get(2)));
+        //when
+        //then
+        assertArrayEquals(new byte[32], MerkleTree.build(hashFunction, Collections.emptyList()).getRoot());
+        assertArrayEquals(leaves.get(0), MerkleTree.build(hashFunction, leaves.subList(0, 1)).getRoot());
+        assertArrayEquals(ab, MerkleTree.build(hashFunction, leaves.subList(0, 2)).getRoot());
+        assertArrayEquals(hashFunction.hash(concat(ab, cc)), MerkleTree.build(hashFunction, leaves).getRoot());
+    }
+
+    @Test
+    void proof() {
+        for (int count = 1; count <= 9; count++) {
+            List<byte[]> leaves = leaves(count);
+            MerkleTree tree = MerkleTree.build(hashFunction, leaves);
+            for (int i = 0; i < count; i++) {
+                MerkleProof proof = tree.proof(i);
+                assertTrue(MerkleTree.verify(hashFunction, leaves.get(i), proof, tree.getRoot()), count + " leaves, leaf " + i);
+                assertTrue(proof.getSiblings().size() <= 4);
+            }
+        }
+    }
+
+    @Test
+    void repeatedLastLeafGivesTheSameRoot() {
+        //given
+        List<byte[]> leaves = leaves(3);
+        List<byte[]> mutated = new ArrayList<>(leaves);
+        mutated.add(leaves.get(2));
+        //when
+        //then the leaves have to be checked for repeats, the root doesn't tell
+        assertArrayEquals(MerkleTree.build(hashFunction, leaves).getRoot(), MerkleTree.build(hashFunction, mutated).getRoot());
+    }
+
+    @Test
+    void proofRejectsOtherData() {
+        //given
+        List<byte[]> leaves = leaves(5);
+        MerkleTree tree = MerkleTree.build(hashFunction, leaves);
+        MerkleProof proof = tree.proof(1);
+        //when
+        //then
+        assertFalse(MerkleTree.verify(hashFunction, leaves.get(2), proof, tree.getRoot()));
+        assertFalse(MerkleTree.verify(hashFunction, leaves.get(1), new MerkleProof(3, proof.getSiblings()), tree.getRoot()));
+        assertFalse(MerkleTree.verify(hashFunction, leaves.get(1), proof, MerkleTree.build(hashFunction, leaves(4)).getRoot()));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.proof(5));
+    }
+
+    private List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(hashFunction.hash(("transaction " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        return leaves;
+    }
+
+    private static byte[] concat(byte[] left, byte[] right) {
+        byte[] result = new byte[left.length + right.length];
+        System.arraycopy(left, 0, result, 0, left.length);
+        System.arraycopy(right, 0, result, left.length, right.length);
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package com.javachain.util;
+
+import com.javachain.dto.BlockHeader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProofOfWorkKernelTest {
+
+    private final EncodingUtility encodingUtility = new EncodingUtility();
+    private final HashingUtility hashingUtility = new HashingUtility(encodingUtility);
+
+    @Test
+    void hash() {
+        //given
+        ProofOfWorkKernel kernel = new ProofOfWorkKernel("42".getBytes(StandardCharsets.UTF_8));
+        //when
+        //then
+        assertEquals(hashingUtility.hexHash("4223"), encodingUtility.bytesToHex(kernel.hash(23)));
+        assertEquals("111f1b7113e7c14a933421251b677a0f2493f65347976c64ada8cfc1e91229c0",
+                encodingUtility.bytesToHex(kernel.hash(2272)));
+    }
+
+    @Test
+    void hashAcrossBlockBoundaries() {
+        StringBuilder message = new StringBuilder();
+        for (int length = 0; length < 2 * ProofOfWorkKernel.MIDSTATE_THRESHOLD; length++) {
+            ProofOfWorkKernel kernel = new ProofOfWorkKernel(message.toString().getBytes(StandardCharsets.UTF_8));
+            for (long nonce : new long[]{0, 7, 10, 99999, Long.MAX_VALUE}) {
+                assertEquals(hashingUtility.hexHash(message.toString() + nonce), encodingUtility.bytesToHex(kernel.hash(nonce)),
+                        "prefix length " + length + ", nonce " + nonce);
+            }
+            message.append(length % 2 == 0 ? 'a' : 'ž');
+        }
+    }
+
+    @Test
+    void hashWithOtherHashFunctions() {
+        for (HashFunction hashFunction : new HashFunction[]{new DoubleSha256HashFunction(), new Sha3HashFunction()}) {
+            HashingUtility chainHashing = new HashingUtility(encodingUtility, hashFunction);
+            for (int length : new int[]{2, ProofOfWorkKernel.MIDSTATE_THRESHOLD + 5}) {
+                String message = String.join("", Collections.nCopies(length, "x"));
+                ProofOfWorkKernel kernel = new ProofOfWorkKernel(hashFunction, message.getBytes(StandardCharsets.UTF_8));
+                assertEquals(chainHashing.hexHash(message + 4711), encodingUtility.bytesToHex(kernel.hash(4711)),
+                        hashFunction.getName() + ", prefix length " + length);
+            }
+        }
+    }
+
+    @Test
+    void forHeader() {
+        //given
+        BlockHeader header = new BlockHeader(BlockHeader.VERSION, new byte[32], new byte[32], 1600000000000L, 0x20010000, 0);
+        ProofOfWorkKernel kernel = ProofOfWorkKernel.forHeader(new Sha256HashFunction(), header);
+        //when
+        //then
+        for (long nonce : new long[]{0, 1, 256, Long.MAX_VALUE}) {
+            assertArrayEquals(hashingUtility.sha256(header.withNonce(nonce).encode()), kernel.hash(nonce));
+        }
+    }
+
+    @Test
+    void hasLeadingOnes() {
+        byte[] digest = {0x11, 0x11, 0x1f, 0x00};
+        assertTrue(ProofOfWorkKernel.hasLeadingOnes(digest, 0));
+        assertTrue(ProofOfWorkKernel.hasLeadingOnes(digest, 4));
+        assertTrue(ProofOfWorkKernel.hasLeadingOnes(digest, 5));
+        assertFalse(ProofOfWorkKernel.hasLeadingOnes(digest, 6));
+        assertFalse(ProofOfWorkKernel.hasLeadingOnes(new byte[]{0x21, 0x11}, 1));
+        assertThrows(IllegalArgumentException.class, () -> ProofOfWorkKernel.hasLeadingOnes(digest, 9));
+    }
+}
@@ -0,0 +1,69 @@
+package com.javachain.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.PublicKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignatureCacheTest {
+
+    private final byte[] txid = new byte[32];
+    private final String signature = "c2lnbmF0dXJl";
+    private PublicKey publicKey;
+    private PublicKey otherKey;
+
+    @BeforeEach
+    void setUpKeys() throws Exception {
+        EncryptionUtility encryptionUtility = new EncryptionUtility();
+        publicKey = encryptionUtility.generateKeyPair().getPublic();
+        otherKey = encryptionUtility.generateKeyPair().getPublic();
+    }
+
+    @Test
+    void containsVerified() {
+        //given
+        SignatureCache signatureCache = new SignatureCache(10);
+        byte[] otherTxid = txid.clone();
+        otherTxid[31] = 1;
+        //when
+        signatureCache.add(txid, signature, publicKey);
+        //then
+        assertTrue(signatureCache.contains(txid, signature, publicKey));
+        assertFalse(signatureCache.contains(otherTxid, signature, publicKey));
+        assertFalse(signatureCache.contains(txid, "c2lnbmF0dXJm", publicKey));
+        assertFalse(signatureCache.contains(txid, signature, otherKey));
+        assertEquals(1, signatureCache.getHits());
+        assertEquals(3, signatureCache.getMisses());
+    }
+
+    @Test
+    void evictsOldest() {
+        //given
+        SignatureCache signatureCache = new SignatureCache(3);
+        //when
+        for (int i = 0; i < 5; i++) {
+            byte[] id = txid.clone();
+            id[0] = (byte) i;
+            signatureCache.add(id, signature, publicKey);
+        }
+        //then
+        assertEquals(3, signatureCache.size());
+        assertFalse(signatureCache.contains(txid, signature, publicKey));
+        byte[] newest = txid.clone();
+        newest[0] = 4;
+        assertTrue(signatureCache.contains(newest, signature, publicKey));
+    }
+
+    @Test
+    void disabled() {
+        //given
+        SignatureCache signatureCache = new SignatureCache(0);
+        //when
+        signatureCache.add(txid, signature, publicKey);
+        //then
+        assertFalse(signatureCache.contains(txid, signature, publicKey));
+        assertThrows(IllegalArgumentException.class, () -> new SignatureCache(-1));
+    }
+}
@@ -0,0 +1,54 @@
+package com.javachain.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetTest {
+
+    @Test
+    void fromCompact() {
+        //given
+        //when
+        //then
+        assertEquals(BigInteger.ONE.shiftLeft(248), Target.INITIAL.getValue());
+        assertEquals(BigInteger.valueOf(0xffff).shiftLeft(8 * 0x1a), Target.fromCompact(0x1d00ffff).getValue());
+        assertEquals(BigInteger.valueOf(0x12), Target.fromCompact(0x01120000).getValue());
+        assertThrows(IllegalArgumentException.class, () -> Target.fromCompact(0x20800000));
+        assertThrows(IllegalArgumentException.class, () -> Target.fromCompact(0x21010000));
+    }
+
+    @Test
+    void fromValue() {
+        //given
+        //when
+        //then
+        assertEquals(Target.INITIAL, Target.fromValue(BigInteger.ONE.shiftLeft(248)));
+        assertEquals(0x1d00ffff, Target.fromValue(BigInteger.valueOf(0xffff).shiftLeft(8 * 0x1a)).getCompact());
+        assertEquals(0x02008000, Target.fromValue(BigInteger.valueOf(0x80)).getCompact());
+        assertEquals(Target.fromCompact(0x20012345),
+                Target.fromValue(Target.fromCompact(0x20012345).getValue().add(BigInteger.ONE)));
+    }
+
+    @Test
+    void isMetBy() {
+        //given
+        Target target = Target.INITIAL;
+        byte[] below = new byte[32];
+        below[0] = 0x00;
+        below[1] = (byte) 0xff;
+        byte[] equal = new byte[32];
+        equal[0] = 0x01;
+        //when
+        //then
+        assertTrue(target.isMetBy(below));
+        assertFalse(target.isMetBy(equal));
+        assertTrue(target.isMetBy("00ff000000000000000000000000000000000000000000000000000000000000"));
+        assertFalse(target.isMetBy("0100000000000000000000000000000000000000000000000000000000000000"));
+        assertFalse(target.isMetBy("f0ff"));
+        assertFalse(target.isMetBy((String) null));
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.javachain.util;
+
+import com.javachain.dto.Hash256;
+import com.javachain.dto.IncomingTransaction;
+import com.javachain.dto.OutgoingTransaction;
+import com.javachain.dto.Transaction;
+import com.javachain.dto.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionEncoderTest {
+
+    private final EncryptionUtility encryptionUtility = new EncryptionUtility();
+    private final TransactionEncoder transactionEncoder =
+            new TransactionEncoder(new HashingUtility(new EncodingUtility()));
+    private Wallet sender;
+    private Wallet recipient;
+
+    @BeforeEach
+    void setUpWallets() throws Exception {
+        KeyPair senderKeys = encryptionUtility.generateKeyPair();
+        KeyPair recipientKeys = encryptionUtility.generateKeyPair();
+        sender = new Wallet(senderKeys.getPrivate(), senderKeys.getPublic(), "sender", null);
+        recipient = new Wallet(recipientKeys.getPrivate(), recipientKeys.getPublic(), "recipient", null);
+    }
+
+    @Test
+    void encode() {
+        //given
+        Transaction transaction = transaction(null, new BigDecimal(5));
+        byte[] encoded = transactionEncoder.encode(transaction);
+        //when signed and the fee computed
+        transaction.setSignature(encryptionUtility.sign(encoded, sender.getPrivateKey()));
+        transaction.setFee(BigDecimal.ONE);
+        //then
+        assertArrayEquals(encoded, transactionEncoder.encode(transaction));
+        assertEquals(32, transactionEncoder.txid(transaction).length);
+        assertTrue(transactionEncoder.encodeSigned(transaction).length > encoded.length);
+
+        //when an amount changes
+        transaction.getOutgoingTransactions().get(0).setAmount(new BigDecimal(6));
+        //then
+        assertFalse(Arrays.equals(encoded, transactionEncoder.encode(transaction)));
+    }
+
+    @Test
+    void encodingDoesNotGrowWithHistory() {
+        //given
+        Transaction parent = transaction(null, new BigDecimal(5));
+        Transaction ancestor = parent;
+        for (int i = 0; i < 20; i++) {
+            Transaction grandParent = transaction(null, BigDecimal.TEN);
+            ancestor.setIncomingTransactions(Collections.singletonList(
+                    new IncomingTransaction(transactionEncoder.seal(grandParent), 0)));
+            ancestor = grandParent;
+        }
+        //when
+        Transaction child = transaction(parent, new BigDecimal(4));
+        Transaction sibling = transaction(transaction(null, new BigDecimal(5)), new BigDecimal(4));
+        //then
+        assertEquals(transactionEncoder.encode(sibling).length, transactionEncoder.encode(child).length);
+    }
+
+    @Test
+    void seal() {
+        //given
+        Transaction transaction = transaction(null, new BigDecimal(5));
+        Transaction copy = transaction(null, new BigDecimal(5));
+        byte[] txid = transactionEncoder.txid(transaction);
+        //when
+        Hash256 id = transactionEncoder.seal(transaction);
+        copy.seal(id);
+        //then
+        assertArrayEquals(txid, id.getBytes());
+        assertEquals(transaction, copy);
+        assertEquals(transaction.hashCode(), copy.hashCode());
+        assertArrayEquals(txid, transactionEncoder.txid(copy));
+    }
+
+    @Test
+    void signAndVerify() throws Exception {
+        //given
+        Transaction transaction = transaction(transaction(null, BigDecimal.TEN), new BigDecimal(5));
+        //when
+        String signature = encryptionUtility.sign(transactionEncoder.encode(transaction), sender.getPrivateKey());
+        //then
+        assertTrue(encryptionUtility.verifySignature(transactionEncoder.encode(transaction), signature, sender.getPublicKey()));
+        transaction.getOutgoingTransactions().get(0).setRecipientAddress(sender.getPublicKey());
+        assertFalse(encryptionUtility.verifySignature(transactionEncoder.encode(transaction), signature, sender.getPublicKey()));
+    }
+
+    private Transaction transaction(Transaction parent, BigDecimal amount) {
+        Transaction transaction = new Transaction();
+        transaction.setWallet(sender);
+        transaction.setIncomingTransactions(parent == null ? new ArrayList<>()
+                : Collections.singletonList(new IncomingTransaction(transactionEncoder.seal(parent), 0)));
+        transaction.setOutgoingTransactions(Collections.singletonList(
+                new OutgoingTransaction(recipient.getPublicKey(), amount)));
+        return transaction;
+    }
+}